@@ -0,0 +1,55 @@
+package api.indy.ai;
+
+import api.indy.model.ai.AIRequest;
+import api.indy.service.AIService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchBenchmark {
+    @Param({"10000"})
+    private int positions;
+
+    private AIService aiService;
+    private List<AIRequest> requests;
+
+    @Setup
+    public void setup() throws IOException {
+        TablebaseEngine tablebase = new TablebaseEngine(new SolverEngine());
+        this.aiService = new AIService(List.of(tablebase), tablebase, "tablebase", 10000, Duration.ofMinutes(10),
+                Duration.ofMillis(1500), 16, 0, 512, new SimpleMeterRegistry());
+        this.requests = new ArrayList<>();
+
+        Random random = new Random(42);
+        while(this.requests.size() < this.positions) {
+            int[][] board = new int[BitBoard.SIZE][BitBoard.SIZE];
+            int moves = random.nextInt(BitBoard.CELLS - 1);
+            for(int m = 0; m < moves; m++) {
+                int cell = random.nextInt(BitBoard.CELLS);
+                if(board[cell / BitBoard.SIZE][cell % BitBoard.SIZE] == 0) board[cell / BitBoard.SIZE][cell % BitBoard.SIZE] = m % 2 == 0 ? 1 : -1;
+            }
+
+            this.requests.add(new AIRequest(board, 1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.aiService.shutdown();
+    }
+
+    @Benchmark
+    public void batch() throws IOException {
+        this.aiService.streamMoves(this.requests, OutputStream.nullOutputStream());
+    }
+}
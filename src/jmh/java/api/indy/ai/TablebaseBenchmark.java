@@ -0,0 +1,59 @@
+package api.indy.ai;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TablebaseBenchmark {
+    private static final int MASK = 1023;
+
+    private SolverEngine solver;
+    private TablebaseEngine tablebase;
+    private int[][][] boards;
+    private int index;
+
+    @Setup
+    public void setup() {
+        this.solver = new SolverEngine();
+        this.tablebase = new TablebaseEngine(this.solver);
+        this.boards = new int[MASK + 1][][];
+
+        Random random = new Random(42);
+        for(int i = 0; i < this.boards.length; i++) {
+            int[][] board;
+            do {
+                board = new int[BitBoard.SIZE][BitBoard.SIZE];
+                int moves = random.nextInt(BitBoard.CELLS - 1);
+                for(int m = 0; m < moves; m++) {
+                    int cell = random.nextInt(BitBoard.CELLS);
+                    if(board[cell / BitBoard.SIZE][cell % BitBoard.SIZE] == 0) board[cell / BitBoard.SIZE][cell % BitBoard.SIZE] = m % 2 == 0 ? 1 : -1;
+                }
+            } while(!playable(board));
+
+            this.boards[i] = board;
+        }
+    }
+
+    @Benchmark
+    public Object tablebase() {
+        return this.tablebase.getMove(this.boards[this.index++ & MASK], 1);
+    }
+
+    @Benchmark
+    public Object solver() {
+        return this.solver.getMove(this.boards[this.index++ & MASK], 1);
+    }
+
+    private static boolean playable(int[][] board) {
+        try {
+            BitBoard.encode(board, 1);
+            return true;
+        } catch(IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package api.indy.model.game;
+
+import api.indy.websocket.BlackholeSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare gc.alloc.rate.norm: {@code perRecipient} reproduces the old encode-per-session loop and
+ * {@code shared} is {@link Game#broadcast(Object)}. {@link PlayGameBenchmark} covers a whole game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BroadcastBenchmark {
+    @Param({"2", "16"})
+    private int recipients;
+
+    private final ObjectMapper serializer = new ObjectMapper();
+    private List<WebSocketSession> sessions;
+    private Map<String, Object> event;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.sessions = new ArrayList<>(this.recipients);
+        for(int i = 0; i < this.recipients; i++) this.sessions.add(new BlackholeSession(blackhole));
+        this.event = Map.of(
+            "type", "player_move",
+            "move", Map.of("row", 1, "col", 2, "symbol", "X", "value", 1)
+        );
+    }
+
+    @Benchmark
+    public void perRecipient() throws IOException {
+        for(WebSocketSession session : this.sessions)
+            session.sendMessage(new TextMessage(this.serializer.writeValueAsString(this.event)));
+    }
+
+    @Benchmark
+    public void shared() throws IOException {
+        TextMessage frame = Game.encode(this.event);
+        for(WebSocketSession session : this.sessions) session.sendMessage(frame);
+    }
+}
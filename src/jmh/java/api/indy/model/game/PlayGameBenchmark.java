@@ -0,0 +1,42 @@
+package api.indy.model.game;
+
+import api.indy.websocket.BlackholeSession;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole nine-move game between two sessions; gc.alloc.rate.norm divided by nine is the allocation per
+ * move. It only uses API that predates the shared broadcast frame, so together with
+ * {@link BlackholeSession} it also runs against older trees for a before and after comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayGameBenchmark {
+    private static final int[][] DRAW = {{0, 0}, {0, 1}, {0, 2}, {1, 1}, {1, 0}, {1, 2}, {2, 1}, {2, 0}, {2, 2}};
+
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Benchmark
+    public Game playGame() throws IOException {
+        Game game = new Game(UUID.randomUUID(), "owner", "Benchmark", "X", "PUBLIC", "BENCH1", null, 3, 3);
+        game.join(new BlackholeSession(this.blackhole));
+        game.join(new BlackholeSession(this.blackhole));
+        game.getPlayerById(0).setSymbol("X");
+        game.getPlayerById(1).setSymbol("O");
+
+        game.start();
+        for(int[] move : DRAW) game.move(move[0], move[1]);
+
+        return game;
+    }
+}
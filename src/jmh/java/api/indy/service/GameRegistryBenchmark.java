@@ -0,0 +1,42 @@
+package api.indy.service;
+
+import api.indy.model.game.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class GameRegistryBenchmark {
+    private static final String[] OWNERS = {"owner-a", "owner-b", "owner-c", "owner-d"};
+
+    private GameRegistry registry;
+
+    @Setup
+    public void setup() {
+        this.registry = new GameRegistry();
+    }
+
+    @Benchmark
+    public Game createAndDelete() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID gameId = new UUID(random.nextLong(), random.nextLong());
+        String code = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+
+        Game game = new Game(gameId, OWNERS[random.nextInt(OWNERS.length)], "Benchmark", "X", random.nextBoolean() ? "PUBLIC" : "UNLISTED", code, null, 3, 3);
+        this.registry.add(game);
+        this.registry.byCode(code);
+
+        return this.registry.remove(gameId);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int lookupWhileChurning() {
+        return this.registry.publicGames().size() + this.registry.byOwner(OWNERS[0]).size();
+    }
+}
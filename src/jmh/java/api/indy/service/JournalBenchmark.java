@@ -0,0 +1,112 @@
+package api.indy.service;
+
+import api.indy.model.game.Board;
+import api.indy.model.game.Game;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Journals a million moves on 15x15 boards and measures how long they take to become durable, and how
+ * long a cold start takes to rebuild every game from them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class JournalBenchmark {
+    private static final int MOVES = 1_000_000;
+    private static final int BOARD_SIZE = 15;
+
+    private Path recoveryDirectory;
+    private Path appendDirectory;
+    private GameService gameService;
+    private JournalService journal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.recoveryDirectory = Files.createTempDirectory("journal-recovery");
+        GameService gameService = gameService();
+        JournalService journal = journal(gameService, this.recoveryDirectory);
+        record(gameService, journal);
+        journal.shutdown();
+        gameService.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        this.appendDirectory = Files.createTempDirectory("journal-append");
+        this.gameService = gameService();
+        this.journal = journal(this.gameService, this.appendDirectory);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        this.journal.shutdown();
+        this.gameService.shutdown();
+        delete(this.appendDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        delete(this.recoveryDirectory);
+    }
+
+    @Benchmark
+    public long appendMillionMoves() {
+        record(this.gameService, this.journal);
+        return this.journal.nextSequence();
+    }
+
+    @Benchmark
+    public int recoverMillionMoves() throws IOException {
+        GameService gameService = gameService();
+        JournalService journal = journal(gameService, this.recoveryDirectory);
+        int games = journal.recoveredGames();
+
+        journal.shutdown();
+        gameService.shutdown();
+        return games;
+    }
+
+    private static void record(GameService gameService, JournalService journal) {
+        int cells = BOARD_SIZE * BOARD_SIZE;
+        Game game = null;
+
+        for(int move = 0; move < MOVES; move++) {
+            int ply = move % cells;
+            if(ply == 0) {
+                game = gameService.createGame("benchmark", "Benchmark", "X", "PUBLIC", BOARD_SIZE, 5);
+                journal.onStarted(game);
+            }
+            journal.onMove(game, ply, Board.encodeMove(ply, ply % 2 == 0 ? 1 : 2));
+        }
+        journal.flush();
+    }
+
+    private static GameService gameService() {
+        AuthService authService = new AuthService(Duration.ofMinutes(30), Duration.ofHours(24), 100_000, Duration.ofMinutes(1), "uuid", "", "",
+                Duration.ofSeconds(60), 1, 1, 10, 30, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        return new GameService(authService, 1, new SimpleMeterRegistry());
+    }
+
+    private static JournalService journal(GameService gameService, Path directory) throws IOException {
+        return new JournalService(gameService, directory, DataSize.ofMegabytes(64), 4096, Duration.ofDays(1));
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try(Stream<Path> files = Files.walk(directory)) {
+            for(Path path : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(path);
+        }
+    }
+}
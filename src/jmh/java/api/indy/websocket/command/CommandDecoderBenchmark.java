@@ -0,0 +1,42 @@
+package api.indy.websocket.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code -prof gc}: {@code untyped} is the previous {@code readValue(payload, Map.class)} path
+ * including its type lookup and casts, {@code typed} is {@link CommandDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommandDecoderBenchmark {
+    @Param({
+        "{\"type\":\"move\",\"row\":1,\"col\":2}",
+        "{\"type\":\"update_symbols\",\"symbols\":[{\"player_id\":0,\"symbol\":\"X\"},{\"player_id\":1,\"symbol\":\"O\"}]}"
+    })
+    private String payload;
+
+    private final ObjectMapper serializer = new ObjectMapper();
+    private final CommandDecoder decoder = new CommandDecoder();
+
+    @Benchmark
+    public int untyped() throws IOException {
+        Map<String, Object> data = this.serializer.readValue(this.payload, Map.class);
+        String type = data.get("type").toString();
+
+        return switch(type.toLowerCase()) {
+            case "move" -> (Integer) data.get("row") + (Integer) data.get("col");
+            default -> data.size();
+        };
+    }
+
+    @Benchmark
+    public Command typed() throws CommandException {
+        return this.decoder.decode(this.payload);
+    }
+}
@@ -0,0 +1,16 @@
+package api.indy.ai;
+
+import api.indy.model.ai.AIMove;
+import org.apache.http.HttpException;
+
+import java.io.IOException;
+
+public interface AIEngine {
+    String name();
+
+    default boolean remote() {
+        return false;
+    }
+
+    AIMove getMove(int[][] board, int value) throws HttpException, IOException;
+}
@@ -0,0 +1,128 @@
+package api.indy.ai;
+
+/**
+ * 3x3 boards packed into two 9-bit masks, bit {@code row * 3 + col} per cell.
+ * A position is a single int: the side to move in the low 9 bits, the opponent in the next 9.
+ */
+public final class BitBoard {
+    public static final int SIZE = 3;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int FULL = (1 << CELLS) - 1;
+
+    public static final int[][] SYMMETRIES = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8},
+            {6, 3, 0, 7, 4, 1, 8, 5, 2},
+            {8, 7, 6, 5, 4, 3, 2, 1, 0},
+            {2, 5, 8, 1, 4, 7, 0, 3, 6},
+            {2, 1, 0, 5, 4, 3, 8, 7, 6},
+            {6, 7, 8, 3, 4, 5, 0, 1, 2},
+            {0, 3, 6, 1, 4, 7, 2, 5, 8},
+            {8, 5, 2, 7, 4, 1, 6, 3, 0}
+    };
+
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    private static final int[] INVERSES = new int[SYMMETRIES.length];
+    private static final int[] BASE3 = new int[1 << CELLS];
+
+    static {
+        for(int symmetry = 0; symmetry < SYMMETRIES.length; symmetry++) {
+            for(int s = 0; s < SYMMETRIES.length; s++) {
+                boolean identity = true;
+                for(int cell = 0; cell < CELLS && identity; cell++) identity = SYMMETRIES[s][SYMMETRIES[symmetry][cell]] == cell;
+                if(identity) INVERSES[symmetry] = s;
+            }
+        }
+
+        for(int mask = 0; mask < BASE3.length; mask++) {
+            int index = 0;
+            for(int cell = CELLS - 1; cell >= 0; cell--) index = index * 3 + ((mask >> cell) & 1);
+            BASE3[mask] = index;
+        }
+    }
+
+    private BitBoard() {}
+
+    public static int encode(int[][] board, int value) {
+        if(value != 1 && value != -1) throw new IllegalArgumentException("Value must be 1 or -1");
+        if(board == null || board.length != SIZE) throw new IllegalArgumentException("Board must be %dx%d".formatted(SIZE, SIZE));
+
+        int own = 0, opp = 0;
+        for(int row = 0; row < SIZE; row++) {
+            if(board[row] == null || board[row].length != SIZE) throw new IllegalArgumentException("Board must be %dx%d".formatted(SIZE, SIZE));
+
+            for(int col = 0; col < SIZE; col++) {
+                int cell = board[row][col];
+                if(cell == value) own |= 1 << (row * SIZE + col);
+                else if(cell == -value) opp |= 1 << (row * SIZE + col);
+                else if(cell != 0) throw new IllegalArgumentException("Invalid cell value: %d".formatted(cell));
+            }
+        }
+
+        if(isWin(own) || isWin(opp)) throw new IllegalArgumentException("Game is already over");
+        if((own | opp) == FULL) throw new IllegalArgumentException("Board is full");
+
+        return own | opp << CELLS;
+    }
+
+    public static int[][] decode(int position, int value) {
+        int[][] board = new int[SIZE][SIZE];
+        for(int cell = 0; cell < CELLS; cell++) {
+            if((own(position) & 1 << cell) != 0) board[cell / SIZE][cell % SIZE] = value;
+            else if((opp(position) & 1 << cell) != 0) board[cell / SIZE][cell % SIZE] = -value;
+        }
+
+        return board;
+    }
+
+    public static int index(int position) {
+        return BASE3[own(position)] + 2 * BASE3[opp(position)];
+    }
+
+    public static int permute(int position, int symmetry) {
+        int result = 0;
+        for(int cell = 0; cell < CELLS; cell++) {
+            if((position & 1 << cell) != 0) result |= 1 << SYMMETRIES[symmetry][cell];
+            if((position & 1 << (cell + CELLS)) != 0) result |= 1 << (SYMMETRIES[symmetry][cell] + CELLS);
+        }
+
+        return result;
+    }
+
+    public static int inverse(int symmetry) {
+        return INVERSES[symmetry];
+    }
+
+    public static int canonicalSymmetry(int position) {
+        int best = 0, bestIndex = Integer.MAX_VALUE;
+        for(int symmetry = 0; symmetry < SYMMETRIES.length; symmetry++) {
+            int index = index(permute(position, symmetry));
+            if(index < bestIndex) {
+                bestIndex = index;
+                best = symmetry;
+            }
+        }
+
+        return best;
+    }
+
+    public static int own(int position) {
+        return position & FULL;
+    }
+
+    public static int opp(int position) {
+        return position >>> CELLS;
+    }
+
+    public static boolean isWin(int stones) {
+        for(int line : LINES) {
+            if((stones & line) == line) return true;
+        }
+
+        return false;
+    }
+}
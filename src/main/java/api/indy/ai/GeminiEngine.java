@@ -0,0 +1,87 @@
+package api.indy.ai;
+
+import api.indy.model.ai.AIMove;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.genai.Client;
+import com.google.genai.types.*;
+import org.apache.http.HttpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+@Component
+public class GeminiEngine implements AIEngine {
+    private static final String MODEL = "gemini-2.0-flash-lite";
+
+    private final String apiKey;
+    private final String[] instructions;
+    private final Schema schema;
+    private final ObjectMapper serializer;
+    private volatile Client client;
+
+    public GeminiEngine(@Value("${ai.apiKey:}") String apiKey) {
+        this.apiKey = apiKey;
+        this.instructions = new String[]{
+                "You are a Tic Tac Toe AI that plays optimally. You are given a 3x3 Tic Tac Toe board represented as a 2D array with values: %d for 'X', %d for 'O'," +
+                        "and 0 for an empty space. Your task is to analyze the current state of the board and return the best move for 'X', represented as the row and column index of the" +
+                        "best move. If there are multiple optimal moves, choose the one with the smallest row index, and if the row indices are the same, choose the smallest column index." +
+                        "The board is represented as follows: \\n",
+                "For example, for the board \\n[[1, 0, -1], \\n[0, -1, 1], \\n[1, 0, 0]], \\n the best move would be represented as {'row': 2, 'col': 2}."
+        };
+
+        Map<String, Schema> properties = Map.of(
+                "row", Schema.builder().type("integer").build(),
+                "col", Schema.builder().type("integer").build()
+        );
+
+        this.schema = Schema.builder()
+                .type("object")
+                .properties(properties)
+                .required(Arrays.asList("row", "col")).build();
+        this.serializer = new ObjectMapper();
+    }
+
+    @Override
+    public String name() {
+        return "gemini";
+    }
+
+    @Override
+    public boolean remote() {
+        return true;
+    }
+
+    @Override
+    public AIMove getMove(int[][] board, int value) throws HttpException, IOException {
+        Content systemInstructions = Content.builder().parts(ImmutableList.of(
+                Part.builder().text(instructions[0].formatted(value, -value)).build(),
+                Part.builder().text(instructions[1]).build()
+        )).build();
+
+        GenerateContentConfig generationConfig = GenerateContentConfig.builder()
+                .systemInstruction(systemInstructions)
+                .temperature(.2F)
+                .responseMimeType("application/json")
+                .responseSchema(this.schema).build();
+
+        GenerateContentResponse response = this.client().models.generateContent(MODEL, Arrays.deepToString(board), generationConfig);
+
+        AIMove move = serializer.readValue(response.text(), AIMove.class);
+        return new AIMove(move.row(), move.col(), this.name());
+    }
+
+    private Client client() {
+        if(this.client == null) {
+            synchronized(this) {
+                if(this.apiKey.isEmpty()) throw new IllegalStateException("ai.apiKey is not configured");
+                if(this.client == null) this.client = Client.builder().apiKey(this.apiKey).build();
+            }
+        }
+
+        return this.client;
+    }
+}
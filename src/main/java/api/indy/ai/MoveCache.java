@@ -0,0 +1,149 @@
+package api.indy.ai;
+
+import org.apache.http.HttpException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Best cells keyed by canonical position. Entries expire after a fixed TTL and are evicted in
+ * insertion order once the cache is full. Concurrent misses on the same key share one load.
+ */
+public class MoveCache {
+    @FunctionalInterface
+    public interface Loader {
+        int load() throws HttpException, IOException;
+    }
+
+    private static class Entry {
+        private final int key;
+        private final int cell;
+        private final long expiresAt;
+
+        private Entry(int key, int cell, long expiresAt) {
+            this.key = key;
+            this.cell = cell;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Entry> entries;
+    private final Queue<Entry> order;
+    private final AtomicInteger queued;
+    private final Map<Integer, CompletableFuture<Integer>> inFlight;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder coalesced;
+    private final LongAdder evictions;
+
+    public MoveCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new ConcurrentHashMap<>();
+        this.order = new ConcurrentLinkedQueue<>();
+        this.queued = new AtomicInteger();
+        this.inFlight = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.coalesced = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    public int get(int key, Loader loader) throws HttpException, IOException {
+        Entry entry = this.entries.get(key);
+        if(entry != null) {
+            if(entry.expiresAt - System.nanoTime() > 0) {
+                this.hits.increment();
+                return entry.cell;
+            }
+
+            if(this.entries.remove(key, entry)) this.evictions.increment();
+        }
+
+        this.misses.increment();
+
+        CompletableFuture<Integer> created = new CompletableFuture<>();
+        CompletableFuture<Integer> pending = this.inFlight.putIfAbsent(key, created);
+        if(pending != null) {
+            this.coalesced.increment();
+            return await(pending);
+        }
+
+        try {
+            int cell = loader.load();
+            this.put(key, cell);
+            created.complete(cell);
+
+            return cell;
+        } catch(HttpException | IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, created);
+        }
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    public long coalesced() {
+        return this.coalesced.sum();
+    }
+
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    private void put(int key, int cell) {
+        Entry entry = new Entry(key, cell, System.nanoTime() + this.ttlNanos);
+        this.entries.put(key, entry);
+        this.order.add(entry);
+        this.queued.incrementAndGet();
+
+        while(this.entries.size() > this.maxSize) {
+            Entry oldest = this.order.poll();
+            if(oldest == null) break;
+
+            this.queued.decrementAndGet();
+            if(this.entries.remove(oldest.key, oldest)) this.evictions.increment();
+        }
+
+        // Replaced and expired entries stay queued until polled, so compact the queue once it runs ahead of the map
+        if(this.queued.get() > this.maxSize * 2) {
+            this.order.removeIf(e -> this.entries.get(e.key) != e);
+            this.queued.set(this.order.size());
+        }
+    }
+
+    private static int await(CompletableFuture<Integer> pending) throws HttpException, IOException {
+        try {
+            return pending.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for AI move", e);
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof HttpException http) throw http;
+            if(cause instanceof IOException io) throw io;
+            if(cause instanceof RuntimeException runtime) throw runtime;
+
+            throw new IOException(cause);
+        }
+    }
+}
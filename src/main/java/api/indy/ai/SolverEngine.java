@@ -0,0 +1,87 @@
+package api.indy.ai;
+
+import api.indy.model.ai.AIMove;
+import org.springframework.stereotype.Component;
+
+/**
+ * Perfect-play negamax with alpha-beta pruning over {@link BitBoard} positions.
+ * Scores only depend on the position (faster wins score higher), so results are cached in a
+ * transposition table indexed directly by the 18-bit position.
+ */
+@Component
+public class SolverEngine implements AIEngine {
+    private static final int EXACT = 1;
+    private static final int LOWER = 2;
+    private static final int UPPER = 3;
+
+    private final short[] table;
+
+    public SolverEngine() {
+        this.table = new short[1 << (BitBoard.CELLS * 2)];
+    }
+
+    @Override
+    public String name() {
+        return "solver";
+    }
+
+    @Override
+    public AIMove getMove(int[][] board, int value) {
+        int cell = this.bestCell(BitBoard.encode(board, value));
+        return new AIMove(cell / BitBoard.SIZE, cell % BitBoard.SIZE, this.name());
+    }
+
+    public int bestCell(int position) {
+        int own = BitBoard.own(position), opp = BitBoard.opp(position);
+        int alpha = -Integer.MAX_VALUE, best = -1;
+
+        for(int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int bit = 1 << cell;
+            if(((own | opp) & bit) != 0) continue;
+
+            int score = -this.negamax(opp, own | bit, -Integer.MAX_VALUE, -alpha);
+            if(best == -1 || score > alpha) {
+                alpha = score;
+                best = cell;
+            }
+        }
+
+        return best;
+    }
+
+    public int evaluate(int position) {
+        return this.negamax(BitBoard.own(position), BitBoard.opp(position), -Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private int negamax(int own, int opp, int alpha, int beta) {
+        int occupied = own | opp;
+        if(BitBoard.isWin(opp)) return -(1 + BitBoard.CELLS - Integer.bitCount(occupied));
+        if(occupied == BitBoard.FULL) return 0;
+
+        int key = own | opp << BitBoard.CELLS;
+        short entry = this.table[key];
+        if(entry != 0) {
+            int flag = entry >> 8, score = (byte) entry;
+            if(flag == EXACT) return score;
+            if(flag == LOWER) alpha = Math.max(alpha, score);
+            else beta = Math.min(beta, score);
+            if(alpha >= beta) return score;
+        }
+
+        int alphaOrig = alpha, best = -Integer.MAX_VALUE;
+        for(int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int bit = 1 << cell;
+            if((occupied & bit) != 0) continue;
+
+            int score = -this.negamax(opp, own | bit, -beta, -alpha);
+            if(score > best) best = score;
+            if(best > alpha) alpha = best;
+            if(alpha >= beta) break;
+        }
+
+        int flag = best <= alphaOrig ? UPPER : best >= beta ? LOWER : EXACT;
+        this.table[key] = (short) (flag << 8 | (best & 0xFF));
+
+        return best;
+    }
+}
@@ -0,0 +1,97 @@
+package api.indy.ai;
+
+import api.indy.model.ai.AIMove;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Best moves for every legal 3x3 position, folded under the 8 board symmetries.
+ * Positions are indexed by their base-3 encoding (0 empty, 1 side to move, 2 opponent); a lookup
+ * is one encoding, two array reads to find the canonical slot and a permutation of the stored move.
+ */
+@Component
+public class TablebaseEngine implements AIEngine {
+    private static final int POSITIONS = 19683;
+
+    private final SolverEngine solver;
+    private final short[] slots;
+    private final byte[] transforms;
+    private final byte[] moves;
+    private final byte[] values;
+
+    @Autowired
+    public TablebaseEngine(SolverEngine solver) {
+        this.solver = solver;
+        this.slots = new short[POSITIONS];
+        this.transforms = new byte[POSITIONS];
+        Arrays.fill(this.slots, (short) -1);
+
+        int[] canonical = new int[POSITIONS];
+        int count = this.fold(0, 0, canonical, 0);
+
+        this.moves = new byte[count];
+        this.values = new byte[count];
+        for(int slot = 0; slot < count; slot++) {
+            int position = canonical[slot];
+            this.moves[slot] = (byte) solver.bestCell(position);
+            this.values[slot] = (byte) solver.evaluate(position);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "tablebase";
+    }
+
+    @Override
+    public AIMove getMove(int[][] board, int value) {
+        int cell = this.bestCell(BitBoard.encode(board, value));
+        return new AIMove(cell / BitBoard.SIZE, cell % BitBoard.SIZE, this.name());
+    }
+
+    public int bestCell(int position) {
+        int index = BitBoard.index(position);
+        int slot = this.slots[index];
+        if(slot < 0) return this.solver.bestCell(position);
+
+        return BitBoard.SYMMETRIES[this.transforms[index]][this.moves[slot]];
+    }
+
+    public int value(int position) {
+        int slot = this.slots[BitBoard.index(position)];
+        if(slot < 0) return this.solver.evaluate(position);
+
+        return this.values[slot];
+    }
+
+    public int size() {
+        return this.moves.length;
+    }
+
+    private int fold(int own, int opp, int[] canonical, int count) {
+        int position = own | opp << BitBoard.CELLS;
+        int index = BitBoard.index(position);
+        if(this.slots[index] >= 0 || BitBoard.isWin(own) || BitBoard.isWin(opp) || (own | opp) == BitBoard.FULL) return count;
+
+        int symmetry = BitBoard.canonicalSymmetry(position);
+        int canonicalPosition = BitBoard.permute(position, symmetry);
+        int canonicalIndex = BitBoard.index(canonicalPosition);
+
+        if(this.slots[canonicalIndex] < 0) {
+            canonical[count] = canonicalPosition;
+            this.slots[canonicalIndex] = (short) count++;
+        }
+
+        this.slots[index] = this.slots[canonicalIndex];
+        this.transforms[index] = (byte) BitBoard.inverse(symmetry);
+
+        for(int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int bit = 1 << cell;
+            if(((own | opp) & bit) == 0) count = this.fold(opp, own | bit, canonical, count);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,44 @@
+package api.indy.auth;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AttemptLimiter {
+    private static class Window {
+        private final long start;
+        private final AtomicInteger attempts;
+
+        private Window(long start) {
+            this.start = start;
+            this.attempts = new AtomicInteger();
+        }
+    }
+
+    private final Map<String, Window> windows;
+    private final int limit;
+    private final long windowNanos;
+
+    public AttemptLimiter(int limit, Duration window) {
+        this.windows = new ConcurrentHashMap<>();
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+    }
+
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        Window window = this.windows.compute(key, (k, current) -> current == null || now - current.start > this.windowNanos ? new Window(now) : current);
+
+        return window.attempts.incrementAndGet() <= this.limit;
+    }
+
+    public void sweep() {
+        long now = System.nanoTime();
+        this.windows.values().removeIf(window -> now - window.start > this.windowNanos);
+    }
+
+    public int size() {
+        return this.windows.size();
+    }
+}
@@ -10,7 +10,6 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import java.io.IOException;
-import java.util.UUID;
 
 @Component
 public class AuthInterceptor implements HandlerInterceptor {
@@ -33,8 +32,13 @@ public class AuthInterceptor implements HandlerInterceptor {
                 return false;
             }
 
-            if(!authService.verifyToken(UUID.fromString(token))) {
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid authorization token");
+            try {
+                if(!authService.verifyToken(token)) {
+                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid authorization token");
+                    return false;
+                }
+            } catch(IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Malformed authorization token");
                 return false;
             }
         }
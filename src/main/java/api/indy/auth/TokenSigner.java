@@ -0,0 +1,105 @@
+package api.indy.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Signs opaque claims as {@code base64url(keyId, claims).base64url(HMAC-SHA256)}.
+ * New tokens are signed with the active key; any key still in the ring verifies, so keys can be rotated
+ * by adding the new key, switching the active id and dropping the old key once its tokens have expired.
+ */
+public class TokenSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Map<String, ThreadLocal<Mac>> keys;
+    private final String activeKey;
+    private final byte[] activeKeyId;
+    private final Base64.Encoder encoder;
+    private final Base64.Decoder decoder;
+
+    public TokenSigner(Map<String, byte[]> keys, String activeKey) {
+        if(!keys.containsKey(activeKey)) throw new IllegalArgumentException("Unknown active key: %s".formatted(activeKey));
+
+        this.keys = new HashMap<>();
+        keys.forEach((id, secret) -> {
+            if(id.isEmpty() || id.length() > Byte.MAX_VALUE) throw new IllegalArgumentException("Invalid key id: %s".formatted(id));
+
+            SecretKeySpec spec = new SecretKeySpec(secret, ALGORITHM);
+            this.keys.put(id, ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance(ALGORITHM);
+                    mac.init(spec);
+                    return mac;
+                } catch(GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        });
+        this.activeKey = activeKey;
+        this.activeKeyId = activeKey.getBytes(StandardCharsets.US_ASCII);
+        this.encoder = Base64.getUrlEncoder().withoutPadding();
+        this.decoder = Base64.getUrlDecoder();
+    }
+
+    public static TokenSigner fromConfig(String keys, String activeKey) {
+        Map<String, byte[]> ring = new HashMap<>();
+        if(keys == null || keys.isBlank()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            ring.put("local", secret);
+
+            return new TokenSigner(ring, "local");
+        }
+
+        for(String key : keys.split(",")) {
+            String[] parts = key.trim().split(":", 2);
+            if(parts.length != 2) throw new IllegalArgumentException("Keys must be formatted as id:base64secret");
+            ring.put(parts[0], Base64.getDecoder().decode(parts[1]));
+        }
+
+        if(activeKey == null || activeKey.isBlank()) {
+            // Picking one from the ring would sign with whichever key the map happens to iterate first
+            if(ring.size() > 1) throw new IllegalArgumentException("An active key must be chosen when more than one key is configured");
+            activeKey = ring.keySet().iterator().next();
+        }
+
+        return new TokenSigner(ring, activeKey);
+    }
+
+    public String sign(byte[] claims) {
+        byte[] body = new byte[1 + this.activeKeyId.length + claims.length];
+        body[0] = (byte) this.activeKeyId.length;
+        System.arraycopy(this.activeKeyId, 0, body, 1, this.activeKeyId.length);
+        System.arraycopy(claims, 0, body, 1 + this.activeKeyId.length, claims.length);
+
+        byte[] signature = this.keys.get(this.activeKey).get().doFinal(body);
+        return this.encoder.encodeToString(body) + "." + this.encoder.encodeToString(signature);
+    }
+
+    /**
+     * @return the signed claims, or {@code null} if the signature does not match a key in the ring
+     * @throws IllegalArgumentException if the token is not in the signed format at all
+     */
+    public byte[] verify(String token) {
+        int separator = token.indexOf('.');
+        if(separator <= 0 || separator != token.lastIndexOf('.')) throw new IllegalArgumentException("Malformed token");
+
+        byte[] body = this.decoder.decode(token.substring(0, separator));
+        byte[] signature = this.decoder.decode(token.substring(separator + 1));
+        if(body.length < 2 || body[0] <= 0 || 1 + body[0] > body.length) throw new IllegalArgumentException("Malformed token");
+
+        ThreadLocal<Mac> key = this.keys.get(new String(body, 1, body[0], StandardCharsets.US_ASCII));
+        if(key == null || !MessageDigest.isEqual(key.get().doFinal(body), signature)) return null;
+
+        byte[] claims = new byte[body.length - 1 - body[0]];
+        System.arraycopy(body, 1 + body[0], claims, 0, claims.length);
+        return claims;
+    }
+}
@@ -0,0 +1,99 @@
+package api.indy.auth;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TokenStore {
+    private static class Entry {
+        private final long issuedAt;
+        private volatile long lastSeen;
+
+        private Entry(long now) {
+            this.issuedAt = now;
+            this.lastSeen = now;
+        }
+    }
+
+    private final Map<UUID, Entry> tokens;
+    private final long idleTtlNanos;
+    private final long maxAgeNanos;
+    private final int maxTokens;
+    private final LongAdder issued;
+    private final LongAdder expired;
+    private final LongAdder rejected;
+
+    public TokenStore(Duration idleTtl, Duration maxAge, int maxTokens) {
+        this.tokens = new ConcurrentHashMap<>();
+        this.idleTtlNanos = idleTtl.toNanos();
+        this.maxAgeNanos = maxAge.toNanos();
+        this.maxTokens = maxTokens;
+        this.issued = new LongAdder();
+        this.expired = new LongAdder();
+        this.rejected = new LongAdder();
+    }
+
+    public boolean add(UUID token) {
+        if(this.tokens.size() >= this.maxTokens && this.sweep() == 0 && this.tokens.size() >= this.maxTokens) {
+            this.rejected.increment();
+            throw new IllegalStateException("Token limit reached");
+        }
+
+        if(this.tokens.putIfAbsent(token, new Entry(System.nanoTime())) != null) return false;
+        this.issued.increment();
+
+        return true;
+    }
+
+    public boolean touch(UUID token) {
+        Entry entry = this.tokens.get(token);
+        if(entry == null) return false;
+
+        long now = System.nanoTime();
+        if(this.isExpired(entry, now)) {
+            if(this.tokens.remove(token, entry)) this.expired.increment();
+            return false;
+        }
+
+        entry.lastSeen = now;
+        return true;
+    }
+
+    public boolean remove(UUID token) {
+        return this.tokens.remove(token) != null;
+    }
+
+    public int sweep() {
+        long now = System.nanoTime();
+        int removed = 0;
+
+        for(Map.Entry<UUID, Entry> token : this.tokens.entrySet()) {
+            if(this.isExpired(token.getValue(), now) && this.tokens.remove(token.getKey(), token.getValue())) removed++;
+        }
+
+        this.expired.add(removed);
+        return removed;
+    }
+
+    public int size() {
+        return this.tokens.size();
+    }
+
+    public long issued() {
+        return this.issued.sum();
+    }
+
+    public long expired() {
+        return this.expired.sum();
+    }
+
+    public long rejected() {
+        return this.rejected.sum();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.lastSeen > this.idleTtlNanos || now - entry.issuedAt > this.maxAgeNanos;
+    }
+}
@@ -0,0 +1,38 @@
+package api.indy.cluster;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries events and lookups between the nodes of a cluster. Messages from one node are delivered to each
+ * other node in the order they were sent.
+ */
+public interface EventBus extends Closeable {
+    interface Handler {
+        /**
+         * Handles a message from another node; the return value is the reply to a {@link #request}, and is
+         * ignored for published events.
+         */
+        String handle(String from, String type, String payload);
+    }
+
+    String nodeId();
+
+    /**
+     * Every node of the cluster, this one included.
+     */
+    Set<String> nodes();
+
+    /**
+     * Sends an event to every other node.
+     */
+    void publish(String type, String payload);
+
+    /**
+     * Sends a lookup to one node and completes with its handler's reply.
+     */
+    CompletableFuture<String> request(String node, String type, String payload);
+
+    void subscribe(Handler handler);
+}
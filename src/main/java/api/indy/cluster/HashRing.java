@@ -0,0 +1,68 @@
+package api.indy.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Immutable consistent-hash ring. Each node is placed at {@code virtualNodes} points so load stays even, and
+ * adding or removing a node only moves the keys between it and its neighbours.
+ */
+public class HashRing {
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if(nodes.isEmpty()) throw new IllegalArgumentException("A ring needs at least one node");
+
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for(String node : nodes) {
+            for(int i = 0; i < virtualNodes; i++) ring.putIfAbsent(hash("%s#%d".formatted(node, i)), node);
+        }
+
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for(Map.Entry<Long, String> point : ring.entrySet()) {
+            this.points[i] = point.getKey();
+            this.owners[i++] = point.getValue();
+        }
+        this.nodes = Set.copyOf(nodes);
+    }
+
+    public String owner(UUID gameId) {
+        return this.owner(mix(gameId.getMostSignificantBits() ^ mix(gameId.getLeastSignificantBits())));
+    }
+
+    public String owner(String joinCode) {
+        return this.owner(hash(joinCode.toUpperCase()));
+    }
+
+    public Set<String> nodes() {
+        return this.nodes;
+    }
+
+    private String owner(long hash) {
+        int index = Arrays.binarySearch(this.points, hash);
+        if(index < 0) index = -index - 1;
+
+        return this.owners[index == this.points.length ? 0 : index];
+    }
+
+    private static long hash(String key) {
+        // FNV-1a, finished with a mixer so short keys still spread over the whole ring
+        long hash = 0xcbf29ce484222325L;
+        for(byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
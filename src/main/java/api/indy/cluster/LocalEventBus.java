@@ -0,0 +1,88 @@
+package api.indy.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Bus between nodes living in the same JVM. Nodes attached to the same {@link Hub} form one cluster, and
+ * each node handles its incoming messages on its own thread, as it would behind a socket.
+ */
+public class LocalEventBus implements EventBus {
+    public static class Hub {
+        private final Map<String, LocalEventBus> members = new ConcurrentHashMap<>();
+    }
+
+    private final Hub hub;
+    private final String nodeId;
+    private final ExecutorService inbox;
+    private final List<Handler> handlers;
+
+    public LocalEventBus(Hub hub, String nodeId) {
+        this.hub = hub;
+        this.nodeId = nodeId;
+        this.inbox = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.handlers = new CopyOnWriteArrayList<>();
+
+        if(hub.members.putIfAbsent(nodeId, this) != null) throw new IllegalArgumentException("Node %s is already on the hub".formatted(nodeId));
+    }
+
+    @Override
+    public String nodeId() {
+        return this.nodeId;
+    }
+
+    @Override
+    public Set<String> nodes() {
+        return Set.copyOf(this.hub.members.keySet());
+    }
+
+    @Override
+    public void publish(String type, String payload) {
+        for(LocalEventBus member : this.hub.members.values()) {
+            if(member != this) member.deliver(this.nodeId, type, payload);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> request(String node, String type, String payload) {
+        LocalEventBus member = this.hub.members.get(node);
+        if(member == null) return CompletableFuture.failedFuture(new IllegalStateException("Unknown node %s".formatted(node)));
+
+        return member.deliver(this.nodeId, type, payload);
+    }
+
+    @Override
+    public void subscribe(Handler handler) {
+        this.handlers.add(handler);
+    }
+
+    @Override
+    public void close() {
+        this.hub.members.remove(this.nodeId, this);
+        this.inbox.shutdownNow();
+    }
+
+    private CompletableFuture<String> deliver(String from, String type, String payload) {
+        try {
+            return CompletableFuture.supplyAsync(() -> dispatch(this.handlers, from, type, payload), this.inbox);
+        } catch(RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    static String dispatch(List<Handler> handlers, String from, String type, String payload) {
+        String reply = null;
+        for(Handler handler : handlers) {
+            String result = handler.handle(from, type, payload);
+            if(reply == null) reply = result;
+        }
+
+        return reply;
+    }
+}
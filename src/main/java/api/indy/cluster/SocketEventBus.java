@@ -0,0 +1,325 @@
+package api.indy.cluster;
+
+import api.indy.util.Mailbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Bus over plain TCP, one outgoing connection per peer. Frames are {@code kind:u8 id:u64 from type
+ * length:i32 payload}; a length of -1 stands for a null payload. Replies complete on the reader thread of
+ * their connection; events and requests go to the sender's own {@link Mailbox}, which keeps its messages in
+ * order while a slow handler or a blocking reply waits off the reader, so replies behind them still arrive.
+ * Peers are connected lazily and
+ * reconnected on the next send after a failure; events sent to an unreachable peer are dropped.
+ * <p>
+ * Every message is read from a connection the sender opened, so only accepted connections need checking.
+ * Each one starts with a handshake: the acceptor sends a random nonce, and the connecting node answers with
+ * its id and an HMAC-SHA256 of the nonce and id under the shared secret. A connection that fails the
+ * handshake, claims another node's id in a frame, or announces a frame over the size cap is dropped before
+ * anything is allocated for it. Traffic is authenticated, not encrypted.
+ */
+public class SocketEventBus implements EventBus {
+    private static final byte EVENT = 0;
+    private static final byte REQUEST = 1;
+    private static final byte REPLY = 2;
+    private static final int NONCE_LENGTH = 16;
+    private static final String HMAC = "HmacSHA256";
+
+    private static class Peer {
+        private final InetSocketAddress address;
+        private final Mailbox inbox;
+        private Socket socket;
+        private DataOutputStream out;
+
+        private Peer(InetSocketAddress address, Mailbox inbox) {
+            this.address = address;
+            this.inbox = inbox;
+        }
+    }
+
+    private final String nodeId;
+    private final Map<String, Peer> peers;
+    private final ServerSocket server;
+    private final SecretKeySpec secret;
+    private final int maxFrameBytes;
+    private final SecureRandom random;
+    private final Duration requestTimeout;
+    private final List<Handler> handlers;
+    private final ExecutorService dispatcher;
+    private final Map<Long, CompletableFuture<String>> pending;
+    private final Set<Socket> accepted;
+    private final AtomicLong ids;
+    private final Logger logger;
+    private volatile boolean running;
+
+    public SocketEventBus(String nodeId, InetSocketAddress bind, Map<String, InetSocketAddress> peers, String secret, int maxFrameBytes,
+                          Duration requestTimeout) throws IOException {
+        if(secret == null || secret.isBlank()) throw new IllegalArgumentException("The socket event bus needs a shared secret");
+
+        this.nodeId = nodeId;
+        this.secret = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC);
+        this.maxFrameBytes = maxFrameBytes;
+        this.random = new SecureRandom();
+        // One thread per peer at most, as each peer's inbox runs one message at a time
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, peers.size()), runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.peers = new HashMap<>();
+        for(Map.Entry<String, InetSocketAddress> peer : peers.entrySet()) this.peers.put(peer.getKey(), new Peer(peer.getValue(), new Mailbox(this.dispatcher)));
+        this.server = new ServerSocket();
+        this.server.bind(bind);
+        this.requestTimeout = requestTimeout;
+        this.handlers = new CopyOnWriteArrayList<>();
+        this.pending = new ConcurrentHashMap<>();
+        this.accepted = ConcurrentHashMap.newKeySet();
+        this.ids = new AtomicLong();
+        this.logger = LoggerFactory.getLogger(SocketEventBus.class);
+        this.running = true;
+
+        Thread acceptor = new Thread(this::accept, "event-bus-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int port() {
+        return this.server.getLocalPort();
+    }
+
+    @Override
+    public String nodeId() {
+        return this.nodeId;
+    }
+
+    @Override
+    public Set<String> nodes() {
+        Set<String> nodes = new HashSet<>(this.peers.keySet());
+        nodes.add(this.nodeId);
+
+        return Set.copyOf(nodes);
+    }
+
+    @Override
+    public void publish(String type, String payload) {
+        for(Map.Entry<String, Peer> peer : this.peers.entrySet()) {
+            try {
+                this.send(peer.getValue(), EVENT, 0, type, payload);
+            } catch(IOException e) {
+                this.logger.debug("Dropped {} for unreachable node {}", type, peer.getKey());
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> request(String node, String type, String payload) {
+        Peer peer = this.peers.get(node);
+        if(peer == null) return CompletableFuture.failedFuture(new IllegalStateException("Unknown node %s".formatted(node)));
+
+        long id = this.ids.incrementAndGet();
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        this.pending.put(id, reply);
+        reply.whenComplete((result, error) -> this.pending.remove(id));
+
+        try {
+            this.send(peer, REQUEST, id, type, payload);
+        } catch(IOException e) {
+            reply.completeExceptionally(e);
+        }
+
+        return reply.orTimeout(this.requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void subscribe(Handler handler) {
+        this.handlers.add(handler);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.running = false;
+        this.dispatcher.shutdownNow();
+        this.server.close();
+        for(Socket socket : this.accepted) socket.close();
+        for(Peer peer : this.peers.values()) {
+            synchronized(peer) {
+                if(peer.socket != null) peer.socket.close();
+            }
+        }
+    }
+
+    private void send(Peer peer, byte kind, long id, String type, String payload) throws IOException {
+        byte[] bytes = payload == null ? null : payload.getBytes(StandardCharsets.UTF_8);
+        if(bytes != null && bytes.length > this.maxFrameBytes)
+            throw new IOException("Payload of %d bytes is over the %d byte frame limit".formatted(bytes.length, this.maxFrameBytes));
+
+        synchronized(peer) {
+            try {
+                if(peer.socket == null) {
+                    Socket socket = new Socket();
+                    peer.socket = socket;
+                    socket.setTcpNoDelay(true);
+                    socket.setSoTimeout((int) this.requestTimeout.toMillis());
+                    socket.connect(peer.address, (int) this.requestTimeout.toMillis());
+
+                    byte[] nonce = new byte[NONCE_LENGTH];
+                    new DataInputStream(socket.getInputStream()).readFully(nonce);
+                    peer.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    peer.out.writeUTF(this.nodeId);
+                    peer.out.write(this.sign(nonce, this.nodeId));
+                }
+
+                peer.out.writeByte(kind);
+                peer.out.writeLong(id);
+                peer.out.writeUTF(this.nodeId);
+                peer.out.writeUTF(type);
+                if(bytes == null) {
+                    peer.out.writeInt(-1);
+                } else {
+                    peer.out.writeInt(bytes.length);
+                    peer.out.write(bytes);
+                }
+                peer.out.flush();
+            } catch(IOException e) {
+                if(peer.socket != null) peer.socket.close();
+                peer.socket = null;
+                peer.out = null;
+                throw e;
+            }
+        }
+    }
+
+    private void accept() {
+        while(this.running) {
+            try {
+                Socket socket = this.server.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) this.requestTimeout.toMillis());
+                this.accepted.add(socket);
+
+                Thread reader = new Thread(() -> this.read(socket), "event-bus-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch(IOException e) {
+                if(this.running) this.logger.warn("Event bus failed to accept a connection", e);
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            String node = this.handshake(socket, in);
+            if(node == null) {
+                this.logger.warn("Event bus rejected a connection from {}", socket.getRemoteSocketAddress());
+                return;
+            }
+            socket.setSoTimeout(0);
+
+            while(this.running) {
+                byte kind = in.readByte();
+                long id = in.readLong();
+                String from = in.readUTF();
+                String type = in.readUTF();
+                int length = in.readInt();
+                if(!from.equals(node) || length < -1 || length > this.maxFrameBytes) {
+                    this.logger.warn("Event bus dropped node {} for a malformed frame", node);
+                    return;
+                }
+
+                String payload = null;
+                if(length >= 0) {
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    payload = new String(bytes, StandardCharsets.UTF_8);
+                }
+
+                this.receive(kind, id, from, type, payload);
+            }
+        } catch(EOFException ignored) {
+        } catch(IOException e) {
+            if(this.running) this.logger.debug("Event bus connection closed", e);
+        } finally {
+            this.accepted.remove(socket);
+            try {
+                socket.close();
+            } catch(IOException ignored) {}
+        }
+    }
+
+    /**
+     * Returns the id of the node on the other end, or null if it does not prove it holds the secret.
+     */
+    private String handshake(Socket socket, DataInputStream in) throws IOException {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        this.random.nextBytes(nonce);
+        OutputStream out = socket.getOutputStream();
+        out.write(nonce);
+        out.flush();
+
+        String node = in.readUTF();
+        byte[] proof = new byte[32];
+        in.readFully(proof);
+
+        if(!this.peers.containsKey(node) || !MessageDigest.isEqual(proof, this.sign(nonce, node))) return null;
+        return node;
+    }
+
+    private byte[] sign(byte[] nonce, String node) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(this.secret);
+            mac.update(nonce);
+            return mac.doFinal(node.getBytes(StandardCharsets.UTF_8));
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void receive(byte kind, long id, String from, String type, String payload) {
+        if(kind == REPLY) {
+            CompletableFuture<String> reply = this.pending.get(id);
+            if(reply != null) reply.complete(payload);
+            return;
+        }
+
+        // The handshake only admits known peers, and every frame must come from the one it named
+        Peer peer = this.peers.get(from);
+        try {
+            peer.inbox.submit(() -> this.handle(peer, kind, id, from, type, payload));
+        } catch(RejectedExecutionException ignored) {
+            // Only once the bus is closing
+        }
+    }
+
+    private void handle(Peer peer, byte kind, long id, String from, String type, String payload) {
+        String reply;
+        try {
+            reply = LocalEventBus.dispatch(this.handlers, from, type, payload);
+        } catch(RuntimeException e) {
+            this.logger.error("Event bus handler failed on {} from {}", type, from, e);
+            reply = null;
+        }
+        if(kind != REQUEST) return;
+
+        try {
+            this.send(peer, REPLY, id, type, reply);
+        } catch(IOException e) {
+            this.logger.debug("Failed to reply to {} on {}", from, type);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package api.indy.config;
+
+import api.indy.cluster.EventBus;
+import api.indy.cluster.LocalEventBus;
+import api.indy.cluster.SocketEventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class ClusterConfig {
+    /**
+     * {@code local} keeps the node on an in-process hub of its own, which is a one-node cluster; {@code socket}
+     * listens on {@code cluster.bind}:{@code cluster.port} and reaches the peers listed as {@code id@host:port} in
+     * {@code cluster.peers}. The bind address defaults to loopback; peers on other hosts need it widened.
+     */
+    @Bean
+    public EventBus eventBus(@Value("${cluster.transport:local}") String transport, @Value("${cluster.node:node-1}") String node,
+                             @Value("${cluster.bind:127.0.0.1}") String bind, @Value("${cluster.port:7700}") int port,
+                             @Value("${cluster.peers:}") String peers, @Value("${cluster.secret:}") String secret,
+                             @Value("${cluster.maxFrameSize:8MB}") DataSize maxFrameSize,
+                             @Value("${cluster.requestTimeout:2s}") Duration requestTimeout) throws IOException {
+        if(transport.equalsIgnoreCase("local")) return new LocalEventBus(new LocalEventBus.Hub(), node);
+        if(!transport.equalsIgnoreCase("socket")) throw new IllegalArgumentException("Unknown cluster transport: %s".formatted(transport));
+
+        Map<String, InetSocketAddress> addresses = new HashMap<>();
+        for(String peer : peers.split(",")) {
+            if(peer.isBlank()) continue;
+
+            String[] parts = peer.trim().split("@");
+            int colon = parts.length == 2 ? parts[1].lastIndexOf(':') : -1;
+            if(colon < 0) throw new IllegalArgumentException("Invalid cluster peer: %s".formatted(peer));
+            addresses.put(parts[0], new InetSocketAddress(parts[1].substring(0, colon), Integer.parseInt(parts[1].substring(colon + 1))));
+        }
+
+        if(secret.isBlank()) throw new IllegalStateException("cluster.secret is required for the socket transport");
+
+        return new SocketEventBus(node, new InetSocketAddress(bind, port), addresses, secret, (int) Math.min(maxFrameSize.toBytes(), Integer.MAX_VALUE),
+                requestTimeout);
+    }
+}
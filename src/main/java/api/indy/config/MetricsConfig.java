@@ -0,0 +1,67 @@
+package api.indy.config;
+
+import api.indy.service.AIService;
+import api.indy.service.AuthService;
+import api.indy.service.GameService;
+import api.indy.service.LobbyFeed;
+import api.indy.service.Matchmaker;
+import api.indy.websocket.OutboundSessions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gauges and counters read from state the services already keep. They are only evaluated when the
+ * registry is scraped, so none of them costs anything on the request or move paths.
+ */
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public MeterBinder gameMetrics(GameService gameService, OutboundSessions outboundSessions, AuthService authService, AIService aiService,
+                                  LobbyFeed lobbyFeed, Matchmaker matchmaker) {
+        return registry -> {
+            Gauge.builder("games.active", gameService, GameService::gameCount)
+                    .description("Games hosted on this node")
+                    .register(registry);
+            Gauge.builder("lobby.games", gameService, service -> service.lobby().size())
+                    .description("Public games listed in the lobby, including other nodes' games")
+                    .register(registry);
+            Gauge.builder("lobby.feed.subscribers", lobbyFeed, LobbyFeed::subscriberCount)
+                    .description("Open lobby SSE subscriptions")
+                    .register(registry);
+            FunctionCounter.builder("lobby.feed.evicted", lobbyFeed, LobbyFeed::evictions)
+                    .description("Lobby subscribers closed for a send that outlasted the send timeout")
+                    .register(registry);
+            Gauge.builder("matchmaking.waiting", matchmaker, Matchmaker::waiting)
+                    .description("Players waiting to be paired")
+                    .register(registry);
+            FunctionCounter.builder("matchmaking.matches", matchmaker, Matchmaker::matches)
+                    .description("Games created by pairing two waiting players")
+                    .register(registry);
+            Gauge.builder("ws.sessions.active", outboundSessions, OutboundSessions::sessionCount)
+                    .description("Connected WebSocket sessions")
+                    .register(registry);
+            Gauge.builder("ws.send.queued", outboundSessions, OutboundSessions::queuedBytes)
+                    .description("Bytes waiting in WebSocket send queues")
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("ws.sessions.evicted", outboundSessions, OutboundSessions::evictions)
+                    .description("Sessions closed for falling behind on their send queue")
+                    .register(registry);
+            Gauge.builder("auth.tokens.active", authService, service -> service.tokens().size())
+                    .description("Session tokens held in memory")
+                    .register(registry);
+            FunctionCounter.builder("ai.upstream.timeouts", aiService, AIService::timeouts)
+                    .description("Remote AI moves that missed their deadline")
+                    .register(registry);
+            FunctionCounter.builder("ai.upstream.rejections", aiService, AIService::rejections)
+                    .description("Remote AI moves refused because the engine was saturated")
+                    .register(registry);
+            FunctionCounter.builder("ai.upstream.failures", aiService, AIService::failures)
+                    .description("Remote AI moves that failed")
+                    .register(registry);
+        };
+    }
+}
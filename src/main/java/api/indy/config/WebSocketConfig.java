@@ -2,6 +2,8 @@ package api.indy.config;
 
 import api.indy.websocket.GameInterceptor;
 import api.indy.websocket.GameSocketHandler;
+import api.indy.websocket.MatchmakingSocketHandler;
+import api.indy.websocket.SpectatorSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -12,10 +14,15 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
     private final GameSocketHandler gameWebSocketHandler;
+    private final SpectatorSocketHandler spectatorSocketHandler;
+    private final MatchmakingSocketHandler matchmakingSocketHandler;
 
     @Autowired
-    public WebSocketConfig(GameSocketHandler gameWebSocketHandler) {
+    public WebSocketConfig(GameSocketHandler gameWebSocketHandler, SpectatorSocketHandler spectatorSocketHandler,
+                           MatchmakingSocketHandler matchmakingSocketHandler) {
         this.gameWebSocketHandler = gameWebSocketHandler;
+        this.spectatorSocketHandler = spectatorSocketHandler;
+        this.matchmakingSocketHandler = matchmakingSocketHandler;
     }
 
     @Override
@@ -23,5 +30,11 @@ public class WebSocketConfig implements WebSocketConfigurer {
         registry.addHandler(gameWebSocketHandler, "/game/join/{gameId}")
                 .setAllowedOrigins("*")
                 .addInterceptors(new GameInterceptor());
+        registry.addHandler(spectatorSocketHandler, "/game/watch/{gameId}")
+                .setAllowedOrigins("*")
+                .addInterceptors(new GameInterceptor());
+        registry.addHandler(matchmakingSocketHandler, "/game/match")
+                .setAllowedOrigins("*")
+                .addInterceptors(new GameInterceptor());
     }
 }
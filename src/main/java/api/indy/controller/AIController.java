@@ -1,27 +1,52 @@
 package api.indy.controller;
 
+import api.indy.model.ErrorResponse;
 import api.indy.model.ai.AIRequest;
 import api.indy.service.AIService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/ai")
 public class AIController {
     private final AIService aiService;
+    private final ObjectMapper serializer;
+    private final int maxBatchSize;
 
     @Autowired
-    public AIController(AIService aiService) {
+    public AIController(AIService aiService, @Value("${ai.batch.maxSize:100000}") int maxBatchSize) {
         this.aiService = aiService;
+        this.serializer = new ObjectMapper();
+        this.maxBatchSize = maxBatchSize;
     }
 
     @PostMapping("/get-move")
-    public ResponseEntity<String> getMove(@RequestBody AIRequest body) throws HttpException, IOException {
-        return new ResponseEntity<>(aiService.getMove(body.board(), body.value()), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<Object>> getMove(@RequestBody AIRequest body) throws HttpException, IOException {
+        try {
+            return aiService.getMoveAsync(body.board(), body.value()).thenApply(move -> new ResponseEntity<>(move, HttpStatus.OK));
+        } catch(IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse(e.getMessage()), HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    @PostMapping("/get-moves")
+    public ResponseEntity<StreamingResponseBody> getMoves(@RequestBody List<AIRequest> body) throws IOException {
+        if(body.size() > this.maxBatchSize) {
+            byte[] error = serializer.writeValueAsBytes(new ErrorResponse("Batch size exceeds %d positions".formatted(this.maxBatchSize)));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(out -> out.write(error));
+        }
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(out -> aiService.streamMoves(body, out));
     }
 }
@@ -1,5 +1,6 @@
 package api.indy.controller;
 
+import api.indy.model.ErrorResponse;
 import api.indy.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -7,7 +8,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/auth")
@@ -20,18 +20,33 @@ public class AuthController {
     }
 
     @PostMapping("/generate-token")
-    public ResponseEntity<Map<String, String>> generateToken() {
-        return new ResponseEntity<>(Map.of("token", authService.generateToken().toString()), HttpStatus.OK);
+    public ResponseEntity<Object> generateToken() {
+        try {
+            return new ResponseEntity<>(Map.of("token", authService.generateToken()), HttpStatus.OK);
+        } catch(IllegalStateException e) {
+            return new ResponseEntity<>(new ErrorResponse(e.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+        }
     }
 
     @PostMapping("/verify/{token}")
     public ResponseEntity<Map<String, String>> verifyToken(@PathVariable("token") String token) {
         try {
-            if(authService.verifyToken(UUID.fromString(token)))
+            if(authService.verifyToken(token))
                 return new ResponseEntity<>(Map.of("message", "Token is valid", "status", "200"), HttpStatus.OK);
             else return new ResponseEntity<>(Map.of("message", "Token is invalid", "status", "401"), HttpStatus.OK);
         } catch(IllegalArgumentException e) {
             return new ResponseEntity<>(Map.of("message", "Invalid token"), HttpStatus.BAD_REQUEST);
         }
     }
+
+    @PostMapping("/revoke/{token}")
+    public ResponseEntity<Map<String, String>> revokeToken(@PathVariable("token") String token) {
+        try {
+            if(authService.revokeToken(token))
+                return new ResponseEntity<>(Map.of("message", "Token revoked", "status", "200"), HttpStatus.OK);
+            else return new ResponseEntity<>(Map.of("message", "Token is invalid", "status", "401"), HttpStatus.OK);
+        } catch(IllegalArgumentException e) {
+            return new ResponseEntity<>(Map.of("message", "Invalid token"), HttpStatus.BAD_REQUEST);
+        }
+    }
 }
@@ -2,26 +2,47 @@ package api.indy.controller;
 
 import api.indy.auth.AuthRequired;
 import api.indy.model.ErrorResponse;
+import api.indy.model.game.Board;
 import api.indy.model.game.CreateGameRequest;
 import api.indy.model.game.Game;
+import api.indy.model.game.JoinTicketRequest;
+import api.indy.model.game.MatchRecord;
+import api.indy.service.AuthService;
+import api.indy.service.ClusterService;
 import api.indy.service.GameService;
+import api.indy.service.LobbyFeed;
+import api.indy.service.LobbyIndex;
+import api.indy.service.MatchArchive;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/game")
 public class GameController {
     private final GameService gameService;
+    private final AuthService authService;
+    private final LobbyFeed lobbyFeed;
+    private final MatchArchive archive;
+    private final ClusterService cluster;
 
     @Autowired
-    public GameController(GameService gameService) {
+    public GameController(GameService gameService, AuthService authService, LobbyFeed lobbyFeed, Optional<MatchArchive> archive, ClusterService cluster) {
         this.gameService = gameService;
+        this.authService = authService;
+        this.lobbyFeed = lobbyFeed;
+        this.archive = archive.orElse(null);
+        this.cluster = cluster;
     }
 
     @AuthRequired
@@ -38,6 +59,14 @@ public class GameController {
         if(!startingPlayer.equalsIgnoreCase("X") && !startingPlayer.equalsIgnoreCase("O") && !startingPlayer.equalsIgnoreCase("random"))
             return new ResponseEntity<>(new ErrorResponse("Invalid starting player"), HttpStatus.BAD_REQUEST);
 
+        int boardSize = body.board_size() == null ? Board.MIN_SIZE : body.board_size();
+        if(boardSize < Board.MIN_SIZE || boardSize > Board.MAX_SIZE)
+            return new ResponseEntity<>(new ErrorResponse("Invalid board size"), HttpStatus.BAD_REQUEST);
+
+        int winLength = body.win_length() == null ? Math.min(boardSize, 5) : body.win_length();
+        if(winLength < Board.MIN_SIZE || winLength > boardSize)
+            return new ResponseEntity<>(new ErrorResponse("Invalid win length"), HttpStatus.BAD_REQUEST);
+
         try {
             Game.Visibility visibility = Game.Visibility.valueOf(body.visibility().toUpperCase());
             Game game;
@@ -49,8 +78,8 @@ public class GameController {
                 if(!password.matches("[a-zA-Z0-9!@#$%^&*-_]{6,20}"))
                     return new ResponseEntity<>(new ErrorResponse("Invalid password format"), HttpStatus.BAD_REQUEST);
 
-                game = this.gameService.createGame(token, name, startingPlayer, body.visibility(), password);
-            } else game = this.gameService.createGame(token, name, startingPlayer, body.visibility());
+                game = this.gameService.createGame(token, name, startingPlayer, body.visibility(), password, boardSize, winLength);
+            } else game = this.gameService.createGame(token, name, startingPlayer, body.visibility(), boardSize, winLength);
 
             return new ResponseEntity<>(Map.of(
                 "game_id", game.uuid().toString(),
@@ -64,31 +93,171 @@ public class GameController {
     }
 
     @GetMapping("/resolve/{code}")
-    public ResponseEntity<Object> resolveGame(@PathVariable String code) {
-        if(!code.matches("[a-zA-Z0-9]{6}")) return new ResponseEntity<>(new ErrorResponse("Invalid code format"), HttpStatus.BAD_REQUEST);
+    public CompletableFuture<ResponseEntity<Object>> resolveGame(@PathVariable String code) {
+        if(!code.matches("[a-zA-Z0-9]{6}"))
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse("Invalid code format"), HttpStatus.BAD_REQUEST));
 
         Game game = this.gameService.resolveGame(code);
-        if(game == null) return new ResponseEntity<>(new ErrorResponse("Couldn't find the game with code: %s".formatted(code)), HttpStatus.NOT_FOUND);
+        if(game != null) return CompletableFuture.completedFuture(this.localGame(game));
 
-        return new ResponseEntity<>(game, HttpStatus.OK);
+        return this.remoteGame(this.cluster.resolveGame(code), "Couldn't find the game with code: %s".formatted(code));
     }
 
     @GetMapping("/get/{gameId}")
-    public ResponseEntity<Object> getGame(@PathVariable("gameId") String gameId) {
+    public CompletableFuture<ResponseEntity<Object>> getGame(@PathVariable("gameId") String gameId) {
+        UUID uuid;
         try {
-            Game game = this.gameService.getGame(UUID.fromString(gameId));
-            if(game == null) return new ResponseEntity<>(new ErrorResponse("Couldn't find the game with id: %s".formatted(gameId)), HttpStatus.NOT_FOUND);
+            uuid = UUID.fromString(gameId);
+        } catch(IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse("Invalid game id format"), HttpStatus.BAD_REQUEST));
+        }
+
+        Game game = this.gameService.getGame(uuid);
+        if(game != null) return CompletableFuture.completedFuture(this.localGame(game));
+
+        return this.remoteGame(this.cluster.findGame(uuid), "Couldn't find the game with id: %s".formatted(gameId));
+    }
 
-            return new ResponseEntity<>(game, HttpStatus.OK);
+    @AuthRequired
+    @PostMapping("/join-ticket/{gameId}")
+    public CompletableFuture<ResponseEntity<Object>> joinTicket(@PathVariable("gameId") String gameId, @RequestBody(required = false) JoinTicketRequest body, HttpServletRequest request) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(gameId);
         } catch(IllegalArgumentException e) {
-            return new ResponseEntity<>(new ErrorResponse("Invalid game id format"), HttpStatus.BAD_REQUEST);
-        } catch (Exception e) {
-            return new ResponseEntity<>(new ErrorResponse(e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse("Invalid game id format"), HttpStatus.BAD_REQUEST));
         }
+
+        Game game = this.gameService.getGame(uuid);
+        if(game == null) return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse("Couldn't find the game with id: %s".formatted(gameId)), HttpStatus.NOT_FOUND));
+        if(!game.visibility().equals(Game.Visibility.PRIVATE)) return CompletableFuture.completedFuture(this.joinTicketResponse(uuid));
+
+        if(body == null || body.password() == null)
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse("Missing required fields"), HttpStatus.BAD_REQUEST));
+
+        if(!this.authService.tryPasswordAttempt(request.getRemoteAddr(), uuid))
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ErrorResponse("Too many attempts"), HttpStatus.TOO_MANY_REQUESTS));
+
+        return this.authService.verifyPasswordAsync(body.password(), game.password())
+                .thenApply(valid -> valid ? this.joinTicketResponse(uuid) : new ResponseEntity<Object>(new ErrorResponse("Invalid password"), HttpStatus.FORBIDDEN))
+                .exceptionally(e -> new ResponseEntity<>(new ErrorResponse("Password verification is busy, try again later"), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @GetMapping("/lobby")
+    public ResponseEntity<SseEmitter> lobbyFeed() {
+        SseEmitter emitter = this.lobbyFeed.subscribe();
+        if(emitter == null) return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
     }
 
     @GetMapping("/list")
-    public ResponseEntity<List<Game>> listGames() {
-        return new ResponseEntity<>(this.gameService.listGames(), HttpStatus.OK);
+    public ResponseEntity<Object> listGames(@RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "filter", defaultValue = "all") String filter,
+                                           @RequestParam(value = "limit", defaultValue = "20") int limit) throws IOException {
+        if(limit < 1 || limit > LobbyIndex.MAX_PAGE_SIZE)
+            return new ResponseEntity<>(new ErrorResponse("Limit must be between 1 and %d".formatted(LobbyIndex.MAX_PAGE_SIZE)), HttpStatus.BAD_REQUEST);
+
+        try {
+            Long position = cursor == null ? null : Long.parseLong(cursor);
+            LobbyIndex.Filter lobbyFilter = LobbyIndex.Filter.valueOf(filter.toUpperCase());
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(this.gameService.lobby().pageJson(position, lobbyFilter, limit));
+        } catch(NumberFormatException e) {
+            return new ResponseEntity<>(new ErrorResponse("Invalid cursor"), HttpStatus.BAD_REQUEST);
+        } catch(IllegalArgumentException e) {
+            return new ResponseEntity<>(new ErrorResponse("Invalid filter"), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<Object> history(@RequestParam(value = "cursor", required = false) String cursor,
+                                          @RequestParam(value = "before", required = false) Long before,
+                                          @RequestParam(value = "game", required = false) String gameId,
+                                          @RequestParam(value = "limit", defaultValue = "20") int limit) throws IOException {
+        if(this.archive == null)
+            return new ResponseEntity<>(new ErrorResponse("Match history is disabled"), HttpStatus.NOT_FOUND);
+
+        if(limit < 1 || limit > MatchArchive.MAX_PAGE_SIZE)
+            return new ResponseEntity<>(new ErrorResponse("Limit must be between 1 and %d".formatted(MatchArchive.MAX_PAGE_SIZE)), HttpStatus.BAD_REQUEST);
+
+        try {
+            Long position = cursor == null ? null : Long.parseLong(cursor);
+            UUID game = gameId == null ? null : UUID.fromString(gameId);
+
+            return new ResponseEntity<>(this.archive.page(position, before, game, null, limit), HttpStatus.OK);
+        } catch(NumberFormatException e) {
+            return new ResponseEntity<>(new ErrorResponse("Invalid cursor"), HttpStatus.BAD_REQUEST);
+        } catch(IllegalArgumentException e) {
+            return new ResponseEntity<>(new ErrorResponse("Invalid game id format"), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @AuthRequired
+    @GetMapping("/history/mine")
+    public ResponseEntity<Object> ownHistory(@RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "before", required = false) Long before,
+                                             @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                             @RequestHeader("Authorization") String token) throws IOException {
+        if(this.archive == null)
+            return new ResponseEntity<>(new ErrorResponse("Match history is disabled"), HttpStatus.NOT_FOUND);
+
+        if(limit < 1 || limit > MatchArchive.MAX_PAGE_SIZE)
+            return new ResponseEntity<>(new ErrorResponse("Limit must be between 1 and %d".formatted(MatchArchive.MAX_PAGE_SIZE)), HttpStatus.BAD_REQUEST);
+
+        try {
+            Long position = cursor == null ? null : Long.parseLong(cursor);
+
+            return new ResponseEntity<>(this.archive.page(position, before, null, token, limit), HttpStatus.OK);
+        } catch(NumberFormatException e) {
+            return new ResponseEntity<>(new ErrorResponse("Invalid cursor"), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/history/{matchId:\\d+}")
+    public ResponseEntity<Object> replay(@PathVariable("matchId") long matchId, @RequestHeader(value = "Authorization", required = false) String token) throws IOException {
+        if(this.archive == null)
+            return new ResponseEntity<>(new ErrorResponse("Match history is disabled"), HttpStatus.NOT_FOUND);
+
+        MatchRecord match = this.archive.match(matchId);
+        if(match == null || !this.archive.visibleTo(match, token))
+            return new ResponseEntity<>(new ErrorResponse("Couldn't find the match with id: %d".formatted(matchId)), HttpStatus.NOT_FOUND);
+
+        return new ResponseEntity<>(Map.of(
+            "match", match,
+            "moves", match.replay()
+        ), HttpStatus.OK);
+    }
+
+    private ResponseEntity<Object> localGame(Game game) {
+        return ResponseEntity.ok()
+                .header("X-Game-Node", this.cluster.nodeId())
+                .header("X-Game-Node-Url", this.cluster.url())
+                .body(game);
+    }
+
+    /**
+     * Games live on the node that owns them on the hash ring; the owner's copy is relayed as-is, with headers
+     * telling the client which node to open its socket against.
+     */
+    private CompletableFuture<ResponseEntity<Object>> remoteGame(CompletableFuture<ClusterService.RemoteGame> lookup, String notFound) {
+        return lookup
+                .thenApply(remote -> remote == null
+                        ? new ResponseEntity<Object>(new ErrorResponse(notFound), HttpStatus.NOT_FOUND)
+                        : ResponseEntity.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("X-Game-Node", remote.node())
+                                .header("X-Game-Node-Url", remote.nodeUrl())
+                                .<Object>body(remote.json()))
+                .exceptionally(e -> new ResponseEntity<>(new ErrorResponse("Game node is unreachable"), HttpStatus.BAD_GATEWAY));
+    }
+
+    private ResponseEntity<Object> joinTicketResponse(UUID gameId) {
+        return new ResponseEntity<>(Map.of(
+            "ticket", this.authService.issueJoinTicket(gameId),
+            "expires_in", this.authService.joinTicketSeconds()
+        ), HttpStatus.OK);
     }
 }
@@ -0,0 +1,295 @@
+package api.indy.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log split into segments named after the sequence number of their first record. Each record
+ * is framed as {@code length:u32 crc:u32 type:u8 payload}. A single writer thread drains whatever has been
+ * appended, writes it with one gathering write and forces it with one fsync, so the cost of a sync is
+ * shared by every record in the batch. Appends never block on I/O.
+ * <p>
+ * A write that fails leaves the journal failed: the writer stops, pending and later flushes fail, and
+ * appends are refused. Part of the failed batch may already be on disk, so the in-memory sequence can no
+ * longer be trusted; the next {@link #replay} recounts from what was actually written.
+ */
+public class Journal implements Closeable {
+    public interface Replayer {
+        void apply(long sequence, byte type, ByteBuffer payload);
+    }
+
+    private static final int HEADER = 9;
+    private static final String SUFFIX = ".log";
+
+    private static class Entry {
+        private final ByteBuffer frame;
+        private final CompletableFuture<Long> barrier;
+
+        private Entry(ByteBuffer frame, CompletableFuture<Long> barrier) {
+            this.frame = frame;
+            this.barrier = barrier;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxBatch;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private final Logger logger;
+    private volatile IOException failure;
+    private volatile boolean running;
+    private volatile long nextSequence;
+    private volatile long batches;
+    private FileChannel segment;
+    private long segmentSize;
+
+    public Journal(Path directory, long nextSequence, long segmentBytes, int maxBatch) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = segmentBytes;
+        this.maxBatch = maxBatch;
+        this.queue = new LinkedBlockingQueue<>();
+        this.nextSequence = nextSequence;
+        this.logger = LoggerFactory.getLogger(Journal.class);
+        this.open(nextSequence);
+
+        this.running = true;
+        this.writer = new Thread(this::write, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a record, or returns false if the journal has failed.
+     */
+    public boolean append(byte type, ByteBuffer payload) {
+        if(this.failure != null) return false;
+
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + payload.remaining());
+        frame.putInt(1 + payload.remaining()).putInt(0).put(type).put(payload.duplicate()).flip();
+
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), 8, frame.limit() - 8);
+        frame.putInt(4, (int) crc.getValue());
+
+        this.queue.add(new Entry(frame, null));
+        return true;
+    }
+
+    /**
+     * Completes with the next sequence number once everything appended before this call is durable.
+     */
+    public CompletableFuture<Long> flush() {
+        if(this.failure != null) return CompletableFuture.failedFuture(new UncheckedIOException(this.failure));
+
+        CompletableFuture<Long> barrier = new CompletableFuture<>();
+        this.queue.add(new Entry(null, barrier));
+
+        return barrier;
+    }
+
+    public long nextSequence() {
+        return this.nextSequence;
+    }
+
+    public long batches() {
+        return this.batches;
+    }
+
+    public boolean failed() {
+        return this.failure != null;
+    }
+
+    public int pending() {
+        return this.queue.size();
+    }
+
+    /**
+     * Deletes segments that hold only records below {@code sequence}.
+     */
+    public void truncateBefore(long sequence) throws IOException {
+        List<Long> starts = segments(this.directory);
+        for(int i = 0; i + 1 < starts.size() && starts.get(i + 1) <= sequence; i++)
+            Files.deleteIfExists(segmentPath(this.directory, starts.get(i)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.flush().exceptionally(e -> null).join();
+        this.running = false;
+
+        // No interrupt: an interrupted FileChannel write closes the channel, so the writer is left to time out its poll
+        try {
+            this.writer.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.segment.close();
+    }
+
+    /**
+     * Replays every record at or after {@code from} in order and returns the sequence number the next record
+     * will get. A torn or corrupt tail on the last segment, left by a crash mid-write, is cut off.
+     */
+    public static long replay(Path directory, long from, Replayer replayer) throws IOException {
+        if(!Files.isDirectory(directory)) return from;
+
+        List<Long> starts = segments(directory);
+        long sequence = starts.isEmpty() ? from : Math.min(from, starts.get(0));
+
+        for(int i = 0; i < starts.size(); i++) {
+            boolean last = i == starts.size() - 1;
+            if(!last && starts.get(i + 1) <= from) continue;
+
+            Path path = segmentPath(directory, starts.get(i));
+            sequence = starts.get(i);
+
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                CRC32C crc = new CRC32C();
+
+                while(buffer.remaining() >= HEADER) {
+                    int start = buffer.position();
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if(length < 1 || length > buffer.remaining()) {
+                        buffer.position(start);
+                        break;
+                    }
+
+                    ByteBuffer body = buffer.slice(buffer.position(), length);
+                    crc.reset();
+                    crc.update(body.duplicate());
+                    if((int) crc.getValue() != checksum) {
+                        buffer.position(start);
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+
+                    if(sequence >= from) replayer.apply(sequence, body.get(0), body.slice(1, length - 1));
+                    sequence++;
+                }
+
+                if(buffer.hasRemaining()) {
+                    if(!last) throw new IOException("Corrupt journal segment %s at offset %d".formatted(path, buffer.position()));
+                    channel.truncate(buffer.position());
+                    channel.force(true);
+                }
+            }
+        }
+
+        return Math.max(sequence, from);
+    }
+
+    private void write() {
+        List<Entry> batch = new ArrayList<>(this.maxBatch);
+        List<ByteBuffer> frames = new ArrayList<>(this.maxBatch);
+
+        while(this.running || !this.queue.isEmpty()) {
+            try {
+                Entry first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null) continue;
+
+                batch.add(first);
+                this.queue.drainTo(batch, this.maxBatch - 1);
+            } catch(InterruptedException e) {
+                continue;
+            }
+
+            if(this.failure != null) {
+                this.fail(batch, this.failure);
+                batch.clear();
+                continue;
+            }
+
+            try {
+                long sequence = this.nextSequence;
+                for(Entry entry : batch) {
+                    if(entry.frame == null) continue;
+
+                    if(this.segmentSize > 0 && this.segmentSize + entry.frame.remaining() > this.segmentBytes) {
+                        this.writeAll(frames);
+                        this.segment.force(false);
+                        this.segment.close();
+                        this.open(sequence);
+                    }
+
+                    this.segmentSize += entry.frame.remaining();
+                    frames.add(entry.frame);
+                    sequence++;
+                }
+
+                this.writeAll(frames);
+                this.segment.force(false);
+                this.nextSequence = sequence;
+                this.batches++;
+
+                for(Entry entry : batch) {
+                    if(entry.barrier != null) entry.barrier.complete(sequence);
+                }
+            } catch(IOException e) {
+                this.failure = e;
+                this.logger.error("Journal write failed; no further records will be accepted", e);
+                this.fail(batch, e);
+            } finally {
+                batch.clear();
+                frames.clear();
+            }
+        }
+    }
+
+    private void fail(List<Entry> batch, IOException failure) {
+        for(Entry entry : batch) {
+            if(entry.barrier != null) entry.barrier.completeExceptionally(new UncheckedIOException(failure));
+        }
+    }
+
+    private void writeAll(List<ByteBuffer> frames) throws IOException {
+        if(frames.isEmpty()) return;
+
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for(ByteBuffer buffer : buffers) remaining += buffer.remaining();
+        while(remaining > 0) remaining -= this.segment.write(buffers);
+
+        frames.clear();
+    }
+
+    private void open(long firstSequence) throws IOException {
+        Path path = segmentPath(this.directory, firstSequence);
+        this.segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.segmentSize = this.segment.size();
+    }
+
+    private static Path segmentPath(Path directory, long firstSequence) {
+        return directory.resolve("%020d%s".formatted(firstSequence, SUFFIX));
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
-@ComponentScan(basePackages = {"api.indy.controller", "api.indy.service", "api.indy.auth", "api.indy.config", "api.indy.websocket"})
+@ComponentScan(basePackages = {"api.indy.ai", "api.indy.controller", "api.indy.service", "api.indy.auth", "api.indy.config", "api.indy.websocket"})
 public class Main {
     public static void main(String[] args) {
         SpringApplication.run(Main.class, args);
@@ -0,0 +1,32 @@
+package api.indy.model.ai;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AIMove {
+    private final int row;
+    private final int col;
+    private final String engine;
+
+    public AIMove(@JsonProperty("row") int row, @JsonProperty("col") int col, @JsonProperty("engine") String engine) {
+        this.row = row;
+        this.col = col;
+        this.engine = engine;
+    }
+
+    @JsonProperty("row")
+    public int row() {
+        return this.row;
+    }
+
+    @JsonProperty("col")
+    public int col() {
+        return this.col;
+    }
+
+    @JsonProperty("engine")
+    public String engine() {
+        return this.engine;
+    }
+}
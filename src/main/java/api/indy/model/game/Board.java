@@ -0,0 +1,183 @@
+package api.indy.model.game;
+
+import java.util.Arrays;
+
+/**
+ * N x N board stored as one bitboard per player. Rows are laid out with a padding bit after the
+ * last column, so shifting by 1, stride, stride + 1 or stride - 1 walks a row, column, diagonal or
+ * anti-diagonal without wrapping onto the next row.
+ * Line sums are kept up to date on every move, so {@link #wins} never rescans the board.
+ */
+public class Board {
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 19;
+
+    private final int size;
+    private final int winLength;
+    private final int stride;
+    private final int[] directions;
+    private final long[] x;
+    private final long[] o;
+    private final int[] rowSums;
+    private final int[] colSums;
+    private final short[] history;
+    private int diagSum;
+    private int antiSum;
+    private int moves;
+
+    public Board(int size, int winLength) {
+        if(size < MIN_SIZE || size > MAX_SIZE) throw new IllegalArgumentException("Board size must be between %d and %d".formatted(MIN_SIZE, MAX_SIZE));
+        if(winLength < MIN_SIZE || winLength > size) throw new IllegalArgumentException("Win length must be between %d and %d".formatted(MIN_SIZE, size));
+
+        this.size = size;
+        this.winLength = winLength;
+        this.stride = size + 1;
+        this.directions = new int[]{1, this.stride, this.stride + 1, this.stride - 1};
+
+        int words = (size * this.stride + Long.SIZE - 1) / Long.SIZE;
+        this.x = new long[words];
+        this.o = new long[words];
+        this.rowSums = new int[size];
+        this.colSums = new int[size];
+        this.history = new short[size * size];
+    }
+
+    /**
+     * Packs a move as {@code cell << 1 | (O ? 1 : 0)}; a 19x19 cell index still fits in 15 bits.
+     */
+    public static short encodeMove(int cell, int value) {
+        return (short) (cell << 1 | (value == 1 ? 0 : 1));
+    }
+
+    public static int moveCell(short move) {
+        return move >> 1;
+    }
+
+    public static int moveValue(short move) {
+        return (move & 1) == 0 ? 1 : -1;
+    }
+
+    /**
+     * Whether {@link #pack} can hold this history: at most 16 cells, at most 14 moves, strictly alternating.
+     */
+    public static boolean packable(short[] history, int size) {
+        if(size * size > 16 || history.length > 14) return false;
+        for(int i = 1; i < history.length; i++) {
+            if((history[i] & 1) == (history[i - 1] & 1)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Packs a whole game into one long: the move count in bits 0-3, whether O moved first in bit 4, then
+     * one 4-bit cell index per move. A finished 3x3 game takes 41 bits.
+     */
+    public static long pack(short[] history) {
+        long packed = history.length;
+        if(history.length > 0) packed |= (long) (history[0] & 1) << 4;
+        for(int i = 0; i < history.length; i++) packed |= (long) moveCell(history[i]) << (5 + 4 * i);
+
+        return packed;
+    }
+
+    public static short[] unpack(long packed) {
+        short[] history = new short[(int) (packed & 0xF)];
+        int first = (int) (packed >>> 4 & 1);
+        for(int i = 0; i < history.length; i++) {
+            int cell = (int) (packed >>> (5 + 4 * i) & 0xF);
+            history[i] = (short) (cell << 1 | (first ^ (i & 1)));
+        }
+
+        return history;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int winLength() {
+        return this.winLength;
+    }
+
+    public int moves() {
+        return this.moves;
+    }
+
+    public boolean inBounds(int row, int col) {
+        return row >= 0 && row < this.size && col >= 0 && col < this.size;
+    }
+
+    public int get(int row, int col) {
+        int bit = row * this.stride + col;
+        if(test(this.x, bit)) return 1;
+        if(test(this.o, bit)) return -1;
+
+        return 0;
+    }
+
+    public boolean place(int row, int col, int value) {
+        if(!this.inBounds(row, col) || this.get(row, col) != 0) return false;
+        if(value != 1 && value != -1) return false;
+
+        int bit = row * this.stride + col;
+        long[] stones = value == 1 ? this.x : this.o;
+        stones[bit >>> 6] |= 1L << bit;
+        this.history[this.moves++] = encodeMove(row * this.size + col, value);
+
+        this.rowSums[row] += value;
+        this.colSums[col] += value;
+        if(row == col) this.diagSum += value;
+        if(row + col == this.size - 1) this.antiSum += value;
+
+        return true;
+    }
+
+    public boolean wins(int row, int col) {
+        int value = this.get(row, col);
+        if(value == 0) return false;
+
+        if(this.winLength == this.size) {
+            int target = value * this.size;
+            return this.rowSums[row] == target || this.colSums[col] == target
+                    || (row == col && this.diagSum == target) || (row + col == this.size - 1 && this.antiSum == target);
+        }
+
+        long[] stones = value == 1 ? this.x : this.o;
+        int bit = row * this.stride + col, limit = this.size * this.stride;
+        for(int direction : this.directions) {
+            int run = 1;
+            for(int b = bit + direction; b < limit && run < this.winLength && test(stones, b); b += direction) run++;
+            for(int b = bit - direction; b >= 0 && run < this.winLength && test(stones, b); b -= direction) run++;
+            if(run >= this.winLength) return true;
+        }
+
+        return false;
+    }
+
+    public boolean replay(short move) {
+        int cell = moveCell(move);
+        return this.place(cell / this.size, cell % this.size, moveValue(move));
+    }
+
+    public short[] history() {
+        return Arrays.copyOf(this.history, this.moves);
+    }
+
+    public boolean full() {
+        return this.moves == this.size * this.size;
+    }
+
+    public int[][] cells() {
+        int[][] cells = new int[this.size][this.size];
+        for(int row = 0; row < this.size; row++) {
+            for(int col = 0; col < this.size; col++) cells[row][col] = this.get(row, col);
+        }
+
+        return cells;
+    }
+
+    private static boolean test(long[] stones, int bit) {
+        return (stones[bit >>> 6] & 1L << bit) != 0;
+    }
+}
@@ -17,11 +17,19 @@ public class CreateGameRequest {
     @JsonProperty("password")
     private final String password;
 
-    public CreateGameRequest(String name, String starting_player, String visibility, String password) {
+    @JsonProperty("board_size")
+    private final Integer board_size;
+
+    @JsonProperty("win_length")
+    private final Integer win_length;
+
+    public CreateGameRequest(String name, String starting_player, String visibility, String password, Integer board_size, Integer win_length) {
         this.name = name;
         this.starting_player = starting_player;
         this.visibility = visibility;
         this.password = password;
+        this.board_size = board_size;
+        this.win_length = win_length;
     }
 
     public String name() {
@@ -39,4 +47,12 @@ public class CreateGameRequest {
     public String password() {
         return this.password;
     }
+
+    public Integer board_size() {
+        return this.board_size;
+    }
+
+    public Integer win_length() {
+        return this.win_length;
+    }
 }
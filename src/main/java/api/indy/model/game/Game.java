@@ -1,15 +1,23 @@
 package api.indy.model.game;
 
+import api.indy.util.Mailbox;
+import api.indy.websocket.BinaryProtocol;
+import api.indy.websocket.WebSocketStatus;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.IntStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class Game {
     public enum Visibility {
@@ -25,10 +33,15 @@ public class Game {
         LOSS
     }
 
-    private static final int SIZE = 3;
+    /**
+     * A player's place in a started game as the journal keeps it, so the same token can take it back after a restart.
+     */
+    public record Seat(String token, int id, String name, String symbol) {}
+
+    private static final ObjectMapper serializer = new ObjectMapper();
+    private static final TextMessage GAME_TURN = new TextMessage("{\"type\":\"game_turn\"}");
 
     private final List<Integer> idPool = new ArrayList<>();
-    private final ObjectMapper serializer = new ObjectMapper();
 
     private final UUID uuid;
     private final String name;
@@ -37,13 +50,31 @@ public class Game {
     private final Visibility visibility;
     private final String joinCode;
     private final String password;
+    private final int boardSize;
+    private final int winLength;
     private final Map<WebSocketSession, Player> players;
-
-    private boolean started;
+    private final CopyOnWriteArrayList<GameListener> listeners;
+    private final Mailbox mailbox;
+    private final Spectators spectators;
+    private final Timer fanOutTimer;
+
+    private volatile boolean started;
+    private volatile long lastActivity;
+    private volatile int vacantSeats;
+    private int sequence;
+    private int binaryPlayers;
     private Queue<Player> turns;
-    private List<List<Integer>> board;
+    private Board board;
+
+    public Game(UUID uuid, String ownerId, String name, String starting_player, String visibility, String joinCode, String password, int boardSize, int winLength) {
+        this(uuid, ownerId, name, starting_player, visibility, joinCode, password, boardSize, winLength, Runnable::run);
+    }
 
-    public Game(UUID uuid, String ownerId, String name, String starting_player, String visibility, String joinCode, String password) {
+    public Game(UUID uuid, String ownerId, String name, String starting_player, String visibility, String joinCode, String password, int boardSize, int winLength, Executor executor) {
+        this(uuid, ownerId, name, starting_player, visibility, joinCode, password, boardSize, winLength, executor, null);
+    }
+
+    public Game(UUID uuid, String ownerId, String name, String starting_player, String visibility, String joinCode, String password, int boardSize, int winLength, Executor executor, Timer fanOutTimer) {
         this.uuid = uuid;
         this.owner = ownerId;
         this.name = name;
@@ -51,34 +82,136 @@ public class Game {
         this.visibility = Visibility.valueOf(visibility.toUpperCase());
         this.joinCode = joinCode;
         this.password = password;
+        this.boardSize = boardSize;
+        this.winLength = winLength;
         this.players = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.mailbox = new Mailbox(executor);
+        this.spectators = new Spectators(executor);
+        this.fanOutTimer = fanOutTimer;
         this.started = false;
+        this.lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Every state change and every send to a joined player must go through here; the mailbox is what keeps
+     * the unsynchronized turn queue, board and id pool consistent. Submitting counts as activity for the reaper,
+     * so housekeeping that only reads the game should use {@link #mailbox()} directly.
+     */
+    public void submit(Mailbox.Task task) {
+        this.lastActivity = System.nanoTime();
+        this.mailbox.submit(task);
+    }
+
+    public void addListener(GameListener listener) {
+        this.listeners.addIfAbsent(listener);
     }
 
     public boolean join(WebSocketSession session) {
         if(this.players.size() == 2) return false;
+        String token = (String) session.getAttributes().get("token");
+        if(this.started) return this.reclaim(session, token);
         int id = this.idPool.isEmpty() ? this.players.size() : this.idPool.remove(0);
 
-        this.players.put(session, new Player(session, "Player %d".formatted(id + 1), id));
+        Player player = new Player(session, token, "Player %d".formatted(id + 1), id);
+        this.players.put(session, player);
+        if(player.binary()) this.binaryPlayers++;
+        this.listeners.forEach(listener -> listener.onPlayersChanged(this));
 
         return this.players.containsKey(session);
     }
 
     public void leave(WebSocketSession session) {
-        this.idPool.add(this.players.get(session).id());
-        this.players.remove(session);
+        Player player = this.players.remove(session);
+        this.idPool.add(player.id());
+        if(player.binary()) this.binaryPlayers--;
+        this.listeners.forEach(listener -> listener.onPlayersChanged(this));
     }
 
-    public void start() throws IOException {
-        this.started = true;
+    public void addSpectator(WebSocketSession session) throws IOException {
+        // Queued behind the game's deletion, which has already sent the other spectators away
+        if(this.spectators.closed()) {
+            this.spectators.release();
+            session.close(WebSocketStatus.NOT_FOUND);
+            return;
+        }
 
-        this.board = new ArrayList<>();
-        for(int i = 0; i < SIZE; i++) {
-            this.board.add(new ArrayList<>());
-            for(int j = 0; j < SIZE; j++) {
-                this.board.get(i).add(0);
-            }
+        Map<String, Object> snapshot = new HashMap<>(Map.of(
+            "type", "spectate",
+            "game", this,
+            "board_size", this.boardSize,
+            "win_length", this.winLength
+        ));
+        if(this.started) {
+            snapshot.put("board", this.board.cells());
+            if(this.turns.peek() != null) snapshot.put("player_turn", this.turns.peek().id());
+        }
+
+        this.spectators.add(session, encode(snapshot));
+        this.listeners.forEach(listener -> listener.onPlayersChanged(this));
+    }
+
+    /**
+     * Claims one of {@code max} spectator places ahead of {@link #addSpectator}; safe from any thread.
+     */
+    public boolean reserveSpectator(int max) {
+        return this.spectators.reserve(max);
+    }
+
+    public void removeSpectator(WebSocketSession session) {
+        this.spectators.remove(session);
+        this.listeners.forEach(listener -> listener.onPlayersChanged(this));
+    }
+
+    public void restore(boolean started, short[] history) {
+        this.restore(started, history, List.of());
+    }
+
+    /**
+     * Rebuilds state from persisted history. Sessions are not persisted, so a restored game has no players;
+     * a started one keeps its {@code seats}, in turn order, for their tokens to {@link #join} again.
+     */
+    public void restore(boolean started, short[] history, List<Seat> seats) {
+        if(history != null) {
+            this.board = new Board(this.boardSize, this.winLength);
+            for(short move : history) this.board.replay(move);
+        }
+
+        this.started = started && this.board != null;
+        if(this.started) {
+            this.seat(seats);
+            this.listeners.forEach(listener -> listener.onStarted(this));
         }
+    }
+
+    public void restoreStart(List<Seat> seats) {
+        this.board = new Board(this.boardSize, this.winLength);
+        this.started = true;
+        this.seat(seats);
+        this.listeners.forEach(listener -> listener.onStarted(this));
+    }
+
+    public void restoreMove(int ply, short move) {
+        if(this.board == null || this.board.moves() != ply || !this.board.replay(move)) return;
+        if(this.turns != null && !this.turns.isEmpty()) this.turns.add(this.turns.poll());
+    }
+
+    public void restoreEnd() {
+        this.started = false;
+        this.vacantSeats = 0;
+    }
+
+    public void closeSpectators() {
+        this.closeSpectators(CloseStatus.NORMAL);
+    }
+
+    public void closeSpectators(CloseStatus status) {
+        this.spectators.closeAll(status);
+    }
+
+    public void start() throws IOException {
+        this.started = true;
+        this.board = new Board(this.boardSize, this.winLength);
 
         this.turns = new LinkedList<>();
         if(this.startingPlayer.equalsIgnoreCase("RANDOM")) {
@@ -93,16 +226,17 @@ public class Game {
             }
         }
         if(this.turns.isEmpty()) this.turns.addAll(this.players.values());
-
-        for(Player player : this.players.values()) {
-            player.session().sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                "type", "game_start",
-                "player_turn", this.turns.peek().id(),
-                "players", this.players.values()
-            ))));
-
-            player.setReady(false);
-        }
+        this.listeners.forEach(listener -> listener.onStarted(this));
+
+        TextMessage frame = encode(Map.of(
+            "type", "game_start",
+            "player_turn", this.turns.peek().id(),
+            "players", this.players.values(),
+            "board_size", this.boardSize,
+            "win_length", this.winLength
+        ));
+        this.players.values().forEach(player -> player.setReady(false));
+        this.fanOut(frame, null, null, true);
 
         this.turn();
     }
@@ -113,48 +247,49 @@ public class Game {
         Player player = this.turns.peek();
         if(player == null) return;
 
-        player.session().sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-            "type", "game_turn"
-        ))));
+        int sequence = ++this.sequence;
+        if(player.session() != null) player.session().sendMessage(player.binary() ? BinaryProtocol.gameTurn(sequence) : GAME_TURN);
 
-        this.players.keySet().forEach(p -> {
-            try {
-                p.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                    "type", "player_turn",
-                    "symbol", player.symbol()
-                ))));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        this.fanOut(this.textWanted() ? Map.of(
+            "type", "player_turn",
+            "symbol", player.symbol()
+        ) : null, this.binaryPlayers > 0 ? BinaryProtocol.playerTurn(sequence, player.value()) : null, null, true);
     }
 
-    public void move(int row, int col) throws IOException {
-        if(!this.started) return;
-        if(this.board.get(row).get(col) != 0) return;
-
-        Player player = this.turns.poll();
-        if(player == null) return;
+    /**
+     * Whether the player on {@code session} may take an in-bounds cell right now: the game is running, it is
+     * their turn and the cell is free.
+     */
+    public boolean canMove(WebSocketSession session, int row, int col) {
+        Player player = this.players.get(session);
 
-        this.board.get(row).set(col, player.value());
+        return this.started && player != null && player == this.turns.peek() && this.board.get(row, col) == 0;
+    }
 
-        this.players.values().forEach(p -> {
-            try {
-                p.session().sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                    "type", "player_move",
-                    "move", Map.of(
-                        "row", row,
-                        "col", col,
-                        "symbol", player.symbol(),
-                        "value", player.value()
-                    )
-                ))));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+    public void move(int row, int col) throws IOException {
+        if(!this.started) return;
+        if(!this.board.inBounds(row, col) || this.board.get(row, col) != 0) return;
 
-        WinState winState = this.checkWin(player, row, col);
+        Player player = this.turns.peek();
+        if(player == null || !this.board.place(row, col, player.value())) return;
+        this.turns.poll();
+
+        short encoded = Board.encodeMove(row * this.boardSize + col, player.value());
+        this.listeners.forEach(listener -> listener.onMove(this, this.board.moves() - 1, encoded));
+
+        // Each encoding is only built when someone on this game takes it
+        int sequence = ++this.sequence;
+        this.fanOut(this.textWanted() ? Map.of(
+            "type", "player_move",
+            "move", Map.of(
+                "row", row,
+                "col", col,
+                "symbol", player.symbol(),
+                "value", player.value()
+            )
+        ) : null, this.binaryPlayers > 0 ? BinaryProtocol.playerMove(sequence, row * this.boardSize + col, player.value()) : null, null, true);
+
+        WinState winState = this.board.wins(row, col) ? WinState.WIN : this.board.full() ? WinState.DRAW : WinState.NONE;
         if(winState.equals(WinState.WIN)) this.endGame(winState, player);
         else if(winState.equals(WinState.DRAW)) this.endGame(winState, null);
 
@@ -162,54 +297,140 @@ public class Game {
         this.turn();
     }
 
-    public WinState checkWin(Player player, int row, int col) {
-        if(this.board.get(row).stream().allMatch(cell -> cell == player.value())) return WinState.WIN;
-        if(this.board.stream().allMatch(r -> r.get(col) == player.value())) return WinState.WIN;
-        if(row == col && IntStream.range(0, SIZE).allMatch(i -> this.board.get(i).get(i) == player.value())) return WinState.WIN;
-        if(row + col == SIZE - 1 && IntStream.range(0, SIZE).allMatch(i -> this.board.get(i).get(SIZE - i - 1) == player.value())) return WinState.WIN;
-
-        if(this.board.stream().allMatch(r -> r.stream().allMatch(cell -> cell != 0))) return WinState.DRAW;
-
-        return WinState.NONE;
+    /**
+     * Sends a player who took back their seat the board as it stands, then tells everyone whose turn it is.
+     */
+    public void resume(WebSocketSession session) throws IOException {
+        Map<String, Object> state = new HashMap<>(Map.of(
+            "type", "game_resume",
+            "board", this.board.cells(),
+            "players", this.players.values()
+        ));
+        if(this.turns.peek() != null) state.put("player_turn", this.turns.peek().id());
+
+        session.sendMessage(encode(state));
+        this.turn();
     }
 
     public void endGame(WinState state, Player winner) throws IOException {
         if(state.equals(WinState.WIN)) {
-            Map<String, Object> payload = new HashMap<>(Map.of(
+            // Only two distinct payloads exist, so each is encoded once however many players receive it;
+            // spectators get the winner's view rather than the losers'
+            int sequence = ++this.sequence;
+            if(!this.spectators.isEmpty()) this.spectators.publish(encode(Map.of(
                     "type", "game_end",
                     "state", state.toString(),
                     "winner", winner
-            ));
-
-            winner.session().sendMessage(new TextMessage(
-                    serializer.writeValueAsString(payload)
-            ));
-
-            payload.put("state", WinState.LOSS.toString());
-
-            this.players.values().stream().filter(player -> !player.equals(winner)).forEach(player -> {
-                try {
-                    player.session().sendMessage(new TextMessage(serializer.writeValueAsString(payload)));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
+            )));
+            winner.session().sendMessage(winner.binary() ? BinaryProtocol.gameEnd(sequence, WinState.WIN.ordinal(), winner.value()) : encode(Map.of(
+                    "type", "game_end",
+                    "state", state.toString(),
+                    "winner", winner
+            )));
+            this.fanOut(Map.of(
+                    "type", "game_end",
+                    "state", WinState.LOSS.toString(),
+                    "winner", winner
+            ), BinaryProtocol.gameEnd(sequence, WinState.LOSS.ordinal(), winner.value()), winner.session(), false);
         } else {
-            Map<String, Object> payload = new HashMap<>(Map.of(
+            this.fanOut(Map.of(
                     "type", "game_end",
                     "state", state.toString()
-            ));
+            ), BinaryProtocol.gameEnd(++this.sequence, state.ordinal(), 0), null, true);
+        }
+
+        this.started = false;
+        this.listeners.forEach(listener -> listener.onEnded(this, state, winner));
+    }
+
+    public void broadcast(Object event) throws IOException {
+        this.fanOut(event, null, null, true);
+    }
+
+    /**
+     * Sends to every player but {@code except}, and to every spectator.
+     */
+    public void broadcast(Object event, WebSocketSession except) throws IOException {
+        this.fanOut(event, null, except, true);
+    }
+
+    public static TextMessage encode(Object event) throws IOException {
+        return new TextMessage(serializer.writeValueAsBytes(event));
+    }
+
+    /**
+     * Whether a player on the JSON protocol or a spectator is listening, so a JSON event is worth building.
+     */
+    private boolean textWanted() {
+        return this.binaryPlayers < this.players.size() || !this.spectators.isEmpty();
+    }
 
-            this.players.values().forEach(player -> {
-                try {
-                    player.session().sendMessage(new TextMessage(serializer.writeValueAsString(payload)));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+    /**
+     * {@code event} may be null when {@link #textWanted} is false, and {@code binary} when no player takes
+     * binary frames. {@code except} only ever names a player; spectators are reached whenever {@code spectate} is set.
+     */
+    private void fanOut(Object event, BinaryMessage binary, WebSocketSession except, boolean spectate) throws IOException {
+        // One shared frame per encoding, built only if someone needs it; a failed recipient must not cut the broadcast short
+        long start = System.nanoTime();
+        TextMessage text = event instanceof TextMessage message ? message : null;
+        if(spectate && !this.spectators.isEmpty()) {
+            if(text == null) text = encode(event);
+            this.spectators.publish(text);
+        }
+
+        IOException failure = null;
+        for(Player player : this.players.values()) {
+            if(player.session() == except) continue;
+
+            try {
+                if(binary != null && player.binary()) {
+                    player.session().sendMessage(binary);
+                } else {
+                    if(text == null) text = encode(event);
+                    player.session().sendMessage(text);
                 }
-            });
+            } catch(IOException e) {
+                if(failure == null) failure = e;
+            }
         }
+        if(this.fanOutTimer != null) this.fanOutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
-        this.started = false;
+        if(failure != null) throw failure;
+    }
+
+    /**
+     * Puts a player of a restored game back in the seat their token held, on their new session.
+     */
+    private boolean reclaim(WebSocketSession session, String token) {
+        Player seat = this.turns == null ? null : this.turns.stream()
+                .filter(player -> player.session() == null && Objects.equals(player.token(), token))
+                .findFirst().orElse(null);
+        if(seat == null) return false;
+
+        Player player = new Player(session, token, seat.name(), seat.id());
+        if(seat.symbol() != null) player.setSymbol(seat.symbol());
+
+        List<Player> order = new ArrayList<>(this.turns);
+        order.set(order.indexOf(seat), player);
+        this.turns.clear();
+        this.turns.addAll(order);
+
+        this.players.put(session, player);
+        if(player.binary()) this.binaryPlayers++;
+        this.vacantSeats--;
+        this.listeners.forEach(listener -> listener.onPlayersChanged(this));
+
+        return true;
+    }
+
+    private void seat(List<Seat> seats) {
+        this.turns = new LinkedList<>();
+        for(Seat seat : seats) {
+            Player player = new Player(null, seat.token(), seat.name(), seat.id());
+            if(seat.symbol() != null) player.setSymbol(seat.symbol());
+            this.turns.add(player);
+        }
+        this.vacantSeats = this.turns.size();
     }
 
     @JsonProperty("uuid")
@@ -237,11 +458,26 @@ public class Game {
         return this.joinCode;
     }
 
+    @JsonProperty("board_size")
+    public int boardSize() {
+        return this.boardSize;
+    }
+
+    @JsonProperty("win_length")
+    public int winLength() {
+        return this.winLength;
+    }
+
     @JsonProperty("player_count")
     public int playerCount()  {
         return this.players.size();
     }
 
+    @JsonProperty("spectator_count")
+    public int spectatorCount() {
+        return this.spectators.size();
+    }
+
     @JsonProperty("players")
     public List<Player> playersList() {
         return new ArrayList<>(this.players.values());
@@ -252,6 +488,47 @@ public class Game {
         return this.started;
     }
 
+    /**
+     * Who plays this game in turn order, the player to move first; empty until it starts.
+     */
+    @JsonIgnore
+    public List<Seat> seats() {
+        if(this.turns == null) return List.of();
+
+        return this.turns.stream().map(player -> new Seat(player.token(), player.id(), player.name(), player.symbol())).toList();
+    }
+
+    /**
+     * Seats of a restored game whose players have not reconnected; safe from any thread.
+     */
+    @JsonIgnore
+    public int vacantSeats() {
+        return this.vacantSeats;
+    }
+
+    @JsonIgnore
+    public short[] history() {
+        return this.board == null ? null : this.board.history();
+    }
+
+    /**
+     * {@link System#nanoTime()} of the last task submitted through {@link #submit}.
+     */
+    @JsonIgnore
+    public long lastActivity() {
+        return this.lastActivity;
+    }
+
+    @JsonIgnore
+    public boolean finished() {
+        return !this.started && this.board != null;
+    }
+
+    @JsonIgnore
+    public Mailbox mailbox() {
+        return this.mailbox;
+    }
+
     @JsonIgnore
     public String password() {
         return this.password;
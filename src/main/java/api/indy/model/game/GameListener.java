@@ -0,0 +1,15 @@
+package api.indy.model.game;
+
+public interface GameListener {
+    default void onCreated(Game game) {}
+
+    default void onPlayersChanged(Game game) {}
+
+    default void onStarted(Game game) {}
+
+    default void onMove(Game game, int ply, short move) {}
+
+    default void onEnded(Game game, Game.WinState state, Player winner) {}
+
+    default void onDeleted(Game game) {}
+}
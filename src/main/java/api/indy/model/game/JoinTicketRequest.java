@@ -0,0 +1,16 @@
+package api.indy.model.game;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class JoinTicketRequest {
+    @JsonProperty("password")
+    private final String password;
+
+    public JoinTicketRequest(@JsonProperty("password") String password) {
+        this.password = password;
+    }
+
+    public String password() {
+        return this.password;
+    }
+}
@@ -0,0 +1,128 @@
+package api.indy.model.game;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+public class LobbyEntry {
+    private final long sequence;
+    private final UUID uuid;
+    private final String name;
+    private final String startingPlayer;
+    private final String joinCode;
+    private final int boardSize;
+    private final int winLength;
+    private final int playerCount;
+    private final int spectatorCount;
+    private final boolean started;
+    private final String node;
+    private final String nodeUrl;
+
+    public LobbyEntry(long sequence, UUID uuid, String name, String startingPlayer, String joinCode, int boardSize, int winLength,
+                      int playerCount, int spectatorCount, boolean started, String node, String nodeUrl) {
+        this.sequence = sequence;
+        this.uuid = uuid;
+        this.name = name;
+        this.startingPlayer = startingPlayer;
+        this.joinCode = joinCode;
+        this.boardSize = boardSize;
+        this.winLength = winLength;
+        this.playerCount = playerCount;
+        this.spectatorCount = spectatorCount;
+        this.started = started;
+        this.node = node;
+        this.nodeUrl = nodeUrl;
+    }
+
+    public LobbyEntry(long sequence, Game game) {
+        this.sequence = sequence;
+        this.uuid = game.uuid();
+        this.name = game.name();
+        this.startingPlayer = game.startingPlayer();
+        this.joinCode = game.joinCode();
+        this.boardSize = game.boardSize();
+        this.winLength = game.winLength();
+        this.playerCount = game.playerCount();
+        this.spectatorCount = game.spectatorCount();
+        this.started = game.started();
+        this.node = null;
+        this.nodeUrl = null;
+    }
+
+    public LobbyEntry withSequence(long sequence) {
+        return new LobbyEntry(sequence, this.uuid, this.name, this.startingPlayer, this.joinCode, this.boardSize, this.winLength,
+                this.playerCount, this.spectatorCount, this.started, this.node, this.nodeUrl);
+    }
+
+    @JsonIgnore
+    public long sequence() {
+        return this.sequence;
+    }
+
+    @JsonProperty("uuid")
+    public UUID uuid() {
+        return this.uuid;
+    }
+
+    @JsonProperty("name")
+    public String name() {
+        return this.name;
+    }
+
+    @JsonProperty("starting_player")
+    public String startingPlayer() {
+        return this.startingPlayer;
+    }
+
+    @JsonProperty("join_code")
+    public String joinCode() {
+        return this.joinCode;
+    }
+
+    @JsonProperty("board_size")
+    public int boardSize() {
+        return this.boardSize;
+    }
+
+    @JsonProperty("win_length")
+    public int winLength() {
+        return this.winLength;
+    }
+
+    @JsonProperty("player_count")
+    public int playerCount() {
+        return this.playerCount;
+    }
+
+    @JsonProperty("spectator_count")
+    public int spectatorCount() {
+        return this.spectatorCount;
+    }
+
+    @JsonProperty("started")
+    public boolean started() {
+        return this.started;
+    }
+
+    /**
+     * The node hosting the game, or null when it is hosted here.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("node")
+    public String node() {
+        return this.node;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("node_url")
+    public String nodeUrl() {
+        return this.nodeUrl;
+    }
+
+    @JsonIgnore
+    public boolean open() {
+        return !this.started && this.playerCount < 2;
+    }
+}
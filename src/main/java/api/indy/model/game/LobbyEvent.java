@@ -0,0 +1,41 @@
+package api.indy.model.game;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LobbyEvent {
+    public enum Type {
+        ADDED,
+        UPDATED,
+        STARTED,
+        REMOVED
+    }
+
+    private final Type type;
+    private final UUID uuid;
+    private final LobbyEntry game;
+
+    public LobbyEvent(Type type, UUID uuid, LobbyEntry game) {
+        this.type = type;
+        this.uuid = uuid;
+        this.game = game;
+    }
+
+    @JsonProperty("type")
+    public String type() {
+        return this.type.name().toLowerCase();
+    }
+
+    @JsonProperty("uuid")
+    public UUID uuid() {
+        return this.uuid;
+    }
+
+    @JsonProperty("game")
+    public LobbyEntry game() {
+        return this.game;
+    }
+}
@@ -0,0 +1,27 @@
+package api.indy.model.game;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LobbyPage {
+    private final List<LobbyEntry> games;
+    private final String nextCursor;
+
+    public LobbyPage(List<LobbyEntry> games, String nextCursor) {
+        this.games = games;
+        this.nextCursor = nextCursor;
+    }
+
+    @JsonProperty("games")
+    public List<LobbyEntry> games() {
+        return this.games;
+    }
+
+    @JsonProperty("next_cursor")
+    public String nextCursor() {
+        return this.nextCursor;
+    }
+}
@@ -0,0 +1,27 @@
+package api.indy.model.game;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MatchPage {
+    private final List<MatchRecord> matches;
+    private final String nextCursor;
+
+    public MatchPage(List<MatchRecord> matches, String nextCursor) {
+        this.matches = matches;
+        this.nextCursor = nextCursor;
+    }
+
+    @JsonProperty("matches")
+    public List<MatchRecord> matches() {
+        return this.matches;
+    }
+
+    @JsonProperty("next_cursor")
+    public String nextCursor() {
+        return this.nextCursor;
+    }
+}
@@ -0,0 +1,140 @@
+package api.indy.model.game;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MatchRecord {
+    private final long id;
+    private final UUID gameId;
+    private final String name;
+    private final Game.Visibility visibility;
+    private final long ownerHash;
+    private final int boardSize;
+    private final int winLength;
+    private final long endedAt;
+    private final Game.WinState state;
+    private final int winner;
+    private final String xSymbol;
+    private final String oSymbol;
+    private final short[] moves;
+
+    public MatchRecord(long id, UUID gameId, String name, Game.Visibility visibility, long ownerHash, int boardSize, int winLength,
+                       long endedAt, Game.WinState state, int winner, String xSymbol, String oSymbol, short[] moves) {
+        this.id = id;
+        this.gameId = gameId;
+        this.name = name;
+        this.visibility = visibility;
+        this.ownerHash = ownerHash;
+        this.boardSize = boardSize;
+        this.winLength = winLength;
+        this.endedAt = endedAt;
+        this.state = state;
+        this.winner = winner;
+        this.xSymbol = xSymbol;
+        this.oSymbol = oSymbol;
+        this.moves = moves;
+    }
+
+    @JsonProperty("match_id")
+    public long id() {
+        return this.id;
+    }
+
+    @JsonProperty("game_id")
+    public UUID gameId() {
+        return this.gameId;
+    }
+
+    @JsonProperty("name")
+    public String name() {
+        return this.name;
+    }
+
+    @JsonIgnore
+    public Game.Visibility visibility() {
+        return this.visibility;
+    }
+
+    @JsonIgnore
+    public long ownerHash() {
+        return this.ownerHash;
+    }
+
+    @JsonProperty("board_size")
+    public int boardSize() {
+        return this.boardSize;
+    }
+
+    @JsonProperty("win_length")
+    public int winLength() {
+        return this.winLength;
+    }
+
+    @JsonProperty("ended_at")
+    public long endedAt() {
+        return this.endedAt;
+    }
+
+    @JsonProperty("state")
+    public String state() {
+        return this.state.toString();
+    }
+
+    @JsonProperty("winner_symbol")
+    public String winnerSymbol() {
+        return this.winner == 1 ? this.xSymbol : this.winner == -1 ? this.oSymbol : null;
+    }
+
+    @JsonProperty("move_count")
+    public int moveCount() {
+        return this.moves.length;
+    }
+
+    @JsonIgnore
+    public int winner() {
+        return this.winner;
+    }
+
+    @JsonIgnore
+    public String xSymbol() {
+        return this.xSymbol;
+    }
+
+    @JsonIgnore
+    public String oSymbol() {
+        return this.oSymbol;
+    }
+
+    @JsonIgnore
+    public short[] moves() {
+        return this.moves;
+    }
+
+    /**
+     * Moves in play order, shaped like the {@code move} of a {@code player_move} event.
+     */
+    @JsonIgnore
+    public List<Map<String, Object>> replay() {
+        List<Map<String, Object>> replay = new ArrayList<>(this.moves.length);
+        for(short move : this.moves) {
+            int cell = Board.moveCell(move), value = Board.moveValue(move);
+            String symbol = value == 1 ? this.xSymbol : this.oSymbol;
+
+            replay.add(Map.of(
+                "row", cell / this.boardSize,
+                "col", cell % this.boardSize,
+                "symbol", symbol == null ? "" : symbol,
+                "value", value
+            ));
+        }
+
+        return replay;
+    }
+}
@@ -1,21 +1,29 @@
 package api.indy.model.game;
 
+import api.indy.websocket.BinaryProtocol;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.web.socket.WebSocketSession;
 
 public class Player {
     private final WebSocketSession session;
+    private final String token;
     private final int id;
     private final String name;
+    private final boolean binary;
     private String symbol;
     private int value;
     private boolean ready;
 
-    public Player(WebSocketSession session, String name, int id) {
+    /**
+     * {@code session} is null for a seat restored from the journal whose player has not reconnected yet.
+     */
+    public Player(WebSocketSession session, String token, String name, int id) {
         this.id = id;
         this.session = session;
+        this.token = token;
         this.name = name;
+        this.binary = session != null && BinaryProtocol.accepted(session);
         this.ready = false;
     }
 
@@ -24,6 +32,16 @@ public class Player {
         return this.session;
     }
 
+    @JsonIgnore
+    public String token() {
+        return this.token;
+    }
+
+    @JsonIgnore
+    public boolean binary() {
+        return this.binary;
+    }
+
     @JsonProperty("id")
     public int id() {
         return this.id;
@@ -0,0 +1,169 @@
+package api.indy.model.game;
+
+import api.indy.util.Mailbox;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only watchers of a game. Membership changes and publishes happen on the game's mailbox; delivery
+ * runs on a separate serial mailbox, so a large audience never delays the players. Events that pile up
+ * while a delivery is running are sent together in one pass over the audience. Only {@link #size} and
+ * {@link #reserve} may be called from other threads.
+ */
+public class Spectators {
+    private static class Spectator {
+        private final WebSocketSession session;
+        private final long since;
+
+        private Spectator(WebSocketSession session, long since) {
+            this.session = session;
+            this.since = since;
+        }
+    }
+
+    private static class Event {
+        private final long sequence;
+        private final TextMessage frame;
+        private final Spectator[] audience;
+
+        private Event(long sequence, TextMessage frame, Spectator[] audience) {
+            this.sequence = sequence;
+            this.frame = frame;
+            this.audience = audience;
+        }
+    }
+
+    private static final Spectator[] EMPTY = new Spectator[0];
+
+    private final List<Spectator> members;
+    private final Queue<Event> pending;
+    private final Mailbox delivery;
+    private final AtomicInteger count;
+    private volatile Spectator[] audience;
+    private volatile boolean closed;
+    private long sequence;
+
+    public Spectators(Executor executor) {
+        this.members = new ArrayList<>();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.delivery = new Mailbox(executor);
+        this.count = new AtomicInteger();
+        this.audience = EMPTY;
+    }
+
+    /**
+     * Claims a place for a spectator about to be added, or returns false if {@code max} are already watching
+     * or on their way. Safe from any thread; the place is taken by the {@link #add} that follows.
+     */
+    public boolean reserve(int max) {
+        for(int count = this.count.get(); count < max; count = this.count.get()) {
+            if(this.count.compareAndSet(count, count + 1)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Sends the snapshot and starts streaming; events published before this call are never delivered, so the
+     * snapshot must describe the state as of now. Takes up a place claimed with {@link #reserve}.
+     */
+    public void add(WebSocketSession session, TextMessage snapshot) throws IOException {
+        try {
+            session.sendMessage(snapshot);
+        } catch(IOException | RuntimeException e) {
+            this.count.decrementAndGet();
+            throw e;
+        }
+        this.members.add(new Spectator(session, this.sequence));
+        this.audience = null;
+    }
+
+    /**
+     * Hands back a place claimed with {@link #reserve} that will not be taken after all.
+     */
+    public void release() {
+        this.count.decrementAndGet();
+    }
+
+    public void remove(WebSocketSession session) {
+        if(this.members.removeIf(spectator -> spectator.session == session)) {
+            this.count.decrementAndGet();
+            this.audience = null;
+        }
+    }
+
+    public void publish(TextMessage frame) {
+        if(this.members.isEmpty()) return;
+
+        Spectator[] audience = this.audience;
+        if(audience == null) this.audience = audience = this.members.toArray(EMPTY);
+
+        this.pending.add(new Event(++this.sequence, frame, audience));
+        this.delivery.submit(this::deliver);
+    }
+
+    /**
+     * Closes every spectator from the delivery mailbox, after anything already published to them, so a large
+     * audience does not hold up the game's own mailbox. Closing is final, as it only happens once the game is gone.
+     */
+    public void closeAll(CloseStatus status) {
+        this.closed = true;
+        Spectator[] closing = this.members.toArray(EMPTY);
+        this.count.addAndGet(-closing.length);
+        this.members.clear();
+        this.audience = EMPTY;
+
+        this.delivery.submit(() -> {
+            for(Spectator spectator : closing) {
+                try {
+                    spectator.session.close(status);
+                } catch(IOException | RuntimeException ignored) {}
+            }
+        });
+    }
+
+    public boolean closed() {
+        return this.closed;
+    }
+
+    public boolean isEmpty() {
+        return this.members.isEmpty();
+    }
+
+    public int size() {
+        return this.count.get();
+    }
+
+    private void deliver() {
+        List<Event> events = new ArrayList<>();
+        for(Event event; (event = this.pending.poll()) != null; ) events.add(event);
+
+        // Consecutive events share an audience array until membership changes; each run is one pass over it
+        for(int start = 0, end; start < events.size(); start = end) {
+            Spectator[] audience = events.get(start).audience;
+            for(end = start + 1; end < events.size() && events.get(end).audience == audience; end++);
+
+            for(Spectator spectator : audience) {
+                for(int i = start; i < end; i++) {
+                    Event event = events.get(i);
+                    if(event.sequence <= spectator.since) continue;
+
+                    try {
+                        spectator.session.sendMessage(event.frame);
+                    } catch(IOException | RuntimeException ignored) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,56 +1,222 @@
 package api.indy.service;
 
-import com.google.common.collect.ImmutableList;
-import com.google.genai.Client;
-import com.google.genai.types.*;
+import api.indy.ai.AIEngine;
+import api.indy.ai.BitBoard;
+import api.indy.ai.MoveCache;
+import api.indy.ai.TablebaseEngine;
+import api.indy.model.ErrorResponse;
+import api.indy.model.ai.AIMove;
+import api.indy.model.ai.AIRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.apache.http.HttpException;
-import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Map;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class AIService {
-    private final Client client;
-    private final String[] instructions;
-
-    public AIService(@Value("${ai.apiKey}") String apiKey) {
-        this.client = Client.builder().apiKey(apiKey).build();
-        this.instructions = new String[]{
-                "You are a Tic Tac Toe AI that plays optimally. You are given a 3x3 Tic Tac Toe board represented as a 2D array with values: %d for 'X', %d for 'O'," +
-                        "and 0 for an empty space. Your task is to analyze the current state of the board and return the best move for 'X', represented as the row and column index of the" +
-                        "best move. If there are multiple optimal moves, choose the one with the smallest row index, and if the row indices are the same, choose the smallest column index." +
-                        "The board is represented as follows: \\n",
-                "For example, for the board \\n[[1, 0, -1], \\n[0, -1, 1], \\n[1, 0, 0]], \\n the best move would be represented as {'row': 2, 'col': 2}."
-        };
-    }
-
-    public String getMove(int[][] board, int value) throws HttpException, IOException {
-        Content systemInstructions = Content.builder().parts(ImmutableList.of(
-                Part.builder().text(instructions[0].formatted(value, -value)).build(),
-                Part.builder().text(instructions[1]).build()
-        )).build();
-
-        Map<String, Schema> properties = Map.of(
-                "row", Schema.builder().type("integer").build(),
-                "col", Schema.builder().type("integer").build()
-        );
-
-        Schema schema = Schema.builder()
-                .type("object")
-                .properties(properties)
-                .required(Arrays.asList("row", "col")).build();
-
-        GenerateContentConfig generationConfig = GenerateContentConfig.builder()
-                .systemInstruction(systemInstructions)
-                .temperature(.2F)
-                .responseMimeType("application/json")
-                .responseSchema(schema).build();
-
-        GenerateContentResponse response = client.models.generateContent("gemini-2.0-flash-lite", Arrays.deepToString(board), generationConfig);
-
-        return response.text();
+    private final AIEngine engine;
+    private final TablebaseEngine fallback;
+    private final MoveCache cache;
+    private final Semaphore bulkhead;
+    private final ExecutorService executor;
+    private final long deadlineMillis;
+    private final LongAdder timeouts;
+    private final LongAdder rejections;
+    private final LongAdder failures;
+    private final Timer upstreamTimer;
+    private final ForkJoinPool batchPool;
+    private final int batchChunkSize;
+    private final byte[][] batchLines;
+    private final ObjectMapper serializer;
+    private final Logger logger;
+
+    public AIService(List<AIEngine> engines, TablebaseEngine fallback, @Value("${ai.engine:tablebase}") String engine,
+                     @Value("${ai.cache.maxSize:10000}") int cacheSize, @Value("${ai.cache.ttl:10m}") Duration cacheTtl,
+                     @Value("${ai.deadline:1500ms}") Duration deadline, @Value("${ai.maxConcurrent:16}") int maxConcurrent,
+                     @Value("${ai.batch.parallelism:0}") int batchParallelism, @Value("${ai.batch.chunkSize:512}") int batchChunkSize,
+                     MeterRegistry registry) throws IOException {
+        this.engine = engines.stream()
+                .filter(e -> e.name().equalsIgnoreCase(engine))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown AI engine: %s".formatted(engine)));
+        this.fallback = fallback;
+        this.cache = new MoveCache(cacheSize, cacheTtl);
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.executor = Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "ai-upstream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlineMillis = deadline.toMillis();
+        this.timeouts = new LongAdder();
+        this.rejections = new LongAdder();
+        this.failures = new LongAdder();
+        this.upstreamTimer = Timer.builder("ai.upstream")
+                .description("Latency of moves fetched from a remote AI engine, cache misses only")
+                .tag("engine", this.engine.name())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(deadline.multipliedBy(2))
+                .register(registry);
+        this.batchPool = new ForkJoinPool(batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors());
+        this.batchChunkSize = batchChunkSize;
+        this.serializer = new ObjectMapper();
+        this.logger = LoggerFactory.getLogger(AIService.class);
+
+        AIEngine local = this.batchEngine();
+        this.batchLines = new byte[BitBoard.CELLS][];
+        for(int cell = 0; cell < BitBoard.CELLS; cell++) {
+            this.batchLines[cell] = (serializer.writeValueAsString(new AIMove(cell / BitBoard.SIZE, cell % BitBoard.SIZE, local.name())) + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    public AIMove getMove(int[][] board, int value) throws HttpException, IOException {
+        int position = BitBoard.encode(board, value);
+        if(!this.engine.remote()) return this.engine.getMove(board, value);
+
+        int symmetry = BitBoard.canonicalSymmetry(position);
+        int canonical = BitBoard.permute(position, symmetry);
+
+        int cell = this.cache.get(canonical << 1 | (value == 1 ? 1 : 0), () -> {
+            long start = System.nanoTime();
+            AIMove move;
+            try {
+                move = this.engine.getMove(BitBoard.decode(canonical, value), value);
+            } finally {
+                this.upstreamTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            int index = move.row() * BitBoard.SIZE + move.col();
+
+            if(move.row() < 0 || move.row() >= BitBoard.SIZE || move.col() < 0 || move.col() >= BitBoard.SIZE
+                    || ((BitBoard.own(canonical) | BitBoard.opp(canonical)) & 1 << index) != 0)
+                throw new IOException("Engine %s returned an illegal move".formatted(this.engine.name()));
+
+            return index;
+        });
+
+        cell = BitBoard.SYMMETRIES[BitBoard.inverse(symmetry)][cell];
+        return new AIMove(cell / BitBoard.SIZE, cell % BitBoard.SIZE, this.engine.name());
+    }
+
+    public CompletableFuture<AIMove> getMoveAsync(int[][] board, int value) throws HttpException, IOException {
+        if(!this.engine.remote()) return CompletableFuture.completedFuture(this.getMove(board, value));
+
+        BitBoard.encode(board, value);
+        if(!this.bulkhead.tryAcquire()) {
+            this.rejections.increment();
+            return CompletableFuture.completedFuture(this.fallback.getMove(board, value));
+        }
+
+        CompletableFuture<AIMove> upstream = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    upstream.complete(this.getMove(board, value));
+                } catch(Exception e) {
+                    upstream.completeExceptionally(e);
+                } finally {
+                    // Only once upstream has actually returned: a call the caller gave up on is still in flight
+                    this.bulkhead.release();
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            this.bulkhead.release();
+            this.rejections.increment();
+            return CompletableFuture.completedFuture(this.fallback.getMove(board, value));
+        }
+
+        // The deadline only stops the caller waiting; the call keeps its permit and is not interrupted, since it may
+        // be loading a cache entry that other requests are waiting on
+        return upstream.orTimeout(this.deadlineMillis, TimeUnit.MILLISECONDS).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if(cause instanceof TimeoutException) this.timeouts.increment();
+            else {
+                this.failures.increment();
+                logger.warn("AI engine {} failed, falling back to {}", this.engine.name(), this.fallback.name(), cause);
+            }
+
+            return this.fallback.getMove(board, value);
+        });
+    }
+
+    public void streamMoves(List<AIRequest> requests, OutputStream out) throws IOException {
+        List<ForkJoinTask<byte[]>> chunks = new ArrayList<>();
+        for(int from = 0; from < requests.size(); from += this.batchChunkSize) {
+            List<AIRequest> chunk = requests.subList(from, Math.min(from + this.batchChunkSize, requests.size()));
+            chunks.add(this.batchPool.submit(() -> this.evaluate(chunk)));
+        }
+
+        try {
+            for(ForkJoinTask<byte[]> chunk : chunks) {
+                out.write(chunk.join());
+                out.flush();
+            }
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+    }
+
+    public String engine() {
+        return this.engine.name();
+    }
+
+    public MoveCache cache() {
+        return this.cache;
+    }
+
+    public long timeouts() {
+        return this.timeouts.sum();
+    }
+
+    public long rejections() {
+        return this.rejections.sum();
+    }
+
+    public long failures() {
+        return this.failures.sum();
+    }
+
+    private byte[] evaluate(List<AIRequest> chunk) throws IOException {
+        AIEngine local = this.batchEngine();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chunk.size() * this.batchLines[0].length);
+
+        for(AIRequest request : chunk) {
+            try {
+                if(request == null) throw new IllegalArgumentException("Missing request");
+
+                AIMove move = local.getMove(request.board(), request.value());
+                out.write(this.batchLines[move.row() * BitBoard.SIZE + move.col()]);
+            } catch(IllegalArgumentException | HttpException e) {
+                out.write(serializer.writeValueAsBytes(new ErrorResponse(e.getMessage())));
+                out.write('\n');
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    private AIEngine batchEngine() {
+        return this.engine.remote() ? this.fallback : this.engine;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+        this.batchPool.shutdownNow();
     }
 }
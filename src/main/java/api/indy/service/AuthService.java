@@ -1,29 +1,97 @@
 package api.indy.service;
 
+import api.indy.auth.AttemptLimiter;
+import api.indy.auth.TokenSigner;
+import api.indy.auth.TokenStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.*;
 
 @Service
 public class AuthService {
+    public enum TokenFormat {
+        UUID,
+        SIGNED
+    }
+
+    private static final byte SESSION_TOKEN = 1;
+    private static final byte JOIN_TICKET = 2;
+
     private final BCryptPasswordEncoder encoder;
-    private final List<UUID> tokens;
+    private final TokenStore tokens;
+    private final TokenSigner signer;
+    private final TokenFormat format;
+    private final long maxAgeSeconds;
+    private final Map<UUID, Long> revoked;
+    private final long joinTicketSeconds;
+    private final ThreadPoolExecutor passwordExecutor;
+    private final AttemptLimiter ipAttempts;
+    private final AttemptLimiter gameAttempts;
+    private final ScheduledExecutorService sweeper;
+    private final Timer verifyTimer;
 
-    public AuthService() {
+    public AuthService(@Value("${auth.token.idleTtl:30m}") Duration idleTtl, @Value("${auth.token.maxAge:24h}") Duration maxAge,
+                       @Value("${auth.token.maxTokens:100000}") int maxTokens, @Value("${auth.token.sweepInterval:1m}") Duration sweepInterval,
+                       @Value("${auth.token.format:uuid}") String format, @Value("${auth.keys:}") String keys, @Value("${auth.activeKey:}") String activeKey,
+                       @Value("${auth.joinTicket.ttl:60s}") Duration joinTicketTtl, @Value("${auth.bcrypt.threads:2}") int bcryptThreads,
+                       @Value("${auth.bcrypt.queue:64}") int bcryptQueue, @Value("${auth.attempts.perIp:10}") int attemptsPerIp,
+                       @Value("${auth.attempts.perGame:30}") int attemptsPerGame, @Value("${auth.attempts.window:1m}") Duration attemptWindow,
+                       MeterRegistry registry) {
         this.encoder = new BCryptPasswordEncoder();
-        this.tokens = new ArrayList<>();
+        this.tokens = new TokenStore(idleTtl, maxAge, maxTokens);
+        this.signer = TokenSigner.fromConfig(keys, activeKey);
+        this.format = TokenFormat.valueOf(format.toUpperCase());
+        this.maxAgeSeconds = maxAge.toSeconds();
+        this.revoked = new ConcurrentHashMap<>();
+        this.joinTicketSeconds = joinTicketTtl.toSeconds();
+        this.passwordExecutor = new ThreadPoolExecutor(bcryptThreads, bcryptThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(bcryptQueue), runnable -> {
+            Thread thread = new Thread(runnable, "bcrypt");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ipAttempts = new AttemptLimiter(attemptsPerIp, attemptWindow);
+        this.gameAttempts = new AttemptLimiter(attemptsPerGame, attemptWindow);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.verifyTimer = Timer.builder("auth.bcrypt.verify")
+                .description("BCrypt password verification time")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+        this.sweeper.scheduleAtFixedRate(this::sweep, sweepInterval.toMillis(), sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
     }
 
-    public UUID generateToken() {
-        UUID uuid = UUID.randomUUID();
-        while(this.tokens.contains(uuid)) uuid = UUID.randomUUID();
+    public String generateToken() {
+        if(this.format == TokenFormat.SIGNED) {
+            long now = System.currentTimeMillis() / 1000;
+            UUID id = UUID.randomUUID();
 
-        this.tokens.add(uuid);
+            return this.signer.sign(ByteBuffer.allocate(33)
+                    .put(SESSION_TOKEN)
+                    .putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits())
+                    .putLong(now)
+                    .putLong(now + this.maxAgeSeconds)
+                    .array());
+        }
 
-        return uuid;
+        UUID uuid = UUID.randomUUID();
+        while(!this.tokens.add(uuid)) uuid = UUID.randomUUID();
+
+        return uuid.toString();
     }
 
     public String hashPassword(String password) {
@@ -31,14 +99,99 @@ public class AuthService {
     }
 
     public boolean verifyPassword(String password, String hash) {
-        return this.encoder.matches(password, hash);
+        long start = System.nanoTime();
+        try {
+            return this.encoder.matches(password, hash);
+        } finally {
+            this.verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public CompletableFuture<Boolean> verifyPasswordAsync(String password, String hash) {
+        try {
+            return CompletableFuture.supplyAsync(() -> this.verifyPassword(password, hash), this.passwordExecutor);
+        } catch(RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public boolean tryPasswordAttempt(String address, UUID gameId) {
+        return this.ipAttempts.tryAcquire(address) & this.gameAttempts.tryAcquire(gameId.toString());
     }
 
-    public boolean verifyToken(UUID token) {
-        return this.tokens.contains(token);
+    public String issueJoinTicket(UUID gameId) {
+        return this.signer.sign(ByteBuffer.allocate(25)
+                .put(JOIN_TICKET)
+                .putLong(gameId.getMostSignificantBits())
+                .putLong(gameId.getLeastSignificantBits())
+                .putLong(System.currentTimeMillis() / 1000 + this.joinTicketSeconds)
+                .array());
     }
 
-    public List<UUID> tokens() {
+    public boolean verifyJoinTicket(String ticket, UUID gameId) {
+        byte[] bytes = this.signer.verify(ticket);
+        if(bytes == null || bytes.length != 25 || bytes[0] != JOIN_TICKET) return false;
+
+        ByteBuffer claims = ByteBuffer.wrap(bytes);
+        return claims.getLong(1) == gameId.getMostSignificantBits() && claims.getLong(9) == gameId.getLeastSignificantBits()
+                && System.currentTimeMillis() / 1000 < claims.getLong(17);
+    }
+
+    public long joinTicketSeconds() {
+        return this.joinTicketSeconds;
+    }
+
+    public boolean verifyToken(String token) {
+        if(token.indexOf('.') < 0) return this.tokens.touch(UUID.fromString(token));
+
+        ByteBuffer claims = this.sessionClaims(token);
+        if(claims == null) return false;
+
+        UUID id = new UUID(claims.getLong(1), claims.getLong(9));
+        return System.currentTimeMillis() / 1000 < claims.getLong(25) && !this.revoked.containsKey(id);
+    }
+
+    public boolean revokeToken(String token) {
+        if(token.indexOf('.') < 0) return this.tokens.remove(UUID.fromString(token));
+
+        ByteBuffer claims = this.sessionClaims(token);
+        if(claims == null) return false;
+
+        this.revoked.put(new UUID(claims.getLong(1), claims.getLong(9)), claims.getLong(25));
+        return true;
+    }
+
+    public TokenStore tokens() {
         return this.tokens;
     }
+
+    public TokenSigner signer() {
+        return this.signer;
+    }
+
+    public int revokedCount() {
+        return this.revoked.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.sweeper.shutdownNow();
+        this.passwordExecutor.shutdownNow();
+    }
+
+    private ByteBuffer sessionClaims(String token) {
+        byte[] claims = this.signer.verify(token);
+        if(claims == null || claims.length != 33 || claims[0] != SESSION_TOKEN) return null;
+
+        return ByteBuffer.wrap(claims);
+    }
+
+    private void sweep() {
+        this.tokens.sweep();
+
+        long now = System.currentTimeMillis() / 1000;
+        this.revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        this.ipAttempts.sweep();
+        this.gameAttempts.sweep();
+    }
 }
@@ -0,0 +1,306 @@
+package api.indy.service;
+
+import api.indy.cluster.EventBus;
+import api.indy.cluster.HashRing;
+import api.indy.model.game.Game;
+import api.indy.model.game.LobbyEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads games over the nodes of a cluster. Every game id and join code is owned by one node on a
+ * consistent-hash ring, and games are only ever created on the node that owns them, so any node can tell
+ * where to look a game up without a directory. Public lobby entries are replicated to every node over the
+ * {@link EventBus}, which keeps {@code /game/list} and the lobby feed local reads.
+ * <p>
+ * Changes go out as deltas, and every node also publishes its whole lobby on start and every
+ * {@code cluster.syncInterval}. A full snapshot replaces everything held for its sender, which repairs
+ * dropped deltas and clears games a restarted node no longer has; a node silent for three intervals is
+ * presumed gone and its entries are dropped.
+ */
+@Service
+public class ClusterService implements LobbyIndex.Listener {
+    public record RemoteGame(String node, String nodeUrl, String json) {}
+
+    private static final String LOBBY_UPSERT = "lobby.upsert";
+    private static final String LOBBY_REMOVE = "lobby.remove";
+    private static final String LOBBY_SNAPSHOT = "lobby.snapshot";
+    private static final String LOBBY_SYNC = "lobby.sync";
+    private static final String GET_GAME = "game.get";
+    private static final String RESOLVE_GAME = "game.resolve";
+
+    private final GameService gameService;
+    private final LobbyIndex lobby;
+    private final EventBus bus;
+    private final String url;
+    private final int virtualNodes;
+    private final long syncIntervalNanos;
+    private final Map<String, Long> lastHeard;
+    private final ScheduledExecutorService publisher;
+    private final ObjectMapper serializer;
+    private final Logger logger;
+    private volatile HashRing ring;
+
+    public ClusterService(GameService gameService, EventBus bus, @Value("${cluster.url:}") String url,
+                          @Value("${cluster.virtualNodes:128}") int virtualNodes, @Value("${cluster.syncInterval:30s}") Duration syncInterval) {
+        this.gameService = gameService;
+        this.lobby = gameService.lobby();
+        this.bus = bus;
+        this.url = url;
+        this.virtualNodes = virtualNodes;
+        this.ring = new HashRing(bus.nodes(), virtualNodes);
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.lastHeard = new ConcurrentHashMap<>();
+        this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.serializer = new ObjectMapper();
+        this.logger = LoggerFactory.getLogger(ClusterService.class);
+
+        gameService.setPlacement(new GameService.Placement() {
+            @Override
+            public boolean owns(UUID gameId) {
+                return isLocal(ring().owner(gameId));
+            }
+
+            @Override
+            public boolean owns(String joinCode) {
+                return isLocal(ring().owner(joinCode));
+            }
+        });
+        bus.subscribe(this::handle);
+        this.lobby.addListener(this);
+
+        // Also covers games restored before this point, which never went out as updates
+        this.publisher.execute(this::publishSnapshot);
+        this.publisher.scheduleWithFixedDelay(this::sync, syncInterval.toMillis(), syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        for(String node : bus.nodes()) {
+            if(isLocal(node)) continue;
+
+            bus.request(node, LOBBY_SNAPSHOT, null)
+                    .thenAccept(snapshot -> this.applySnapshot(node, snapshot))
+                    .exceptionally(e -> {
+                        this.logger.info("Node {} is not reachable yet; its lobby will arrive as it changes", node);
+                        return null;
+                    });
+        }
+    }
+
+    public String nodeId() {
+        return this.bus.nodeId();
+    }
+
+    public String url() {
+        return this.url;
+    }
+
+    public String ownerOf(UUID gameId) {
+        return this.ring().owner(gameId);
+    }
+
+    public String ownerOf(String joinCode) {
+        return this.ring().owner(joinCode);
+    }
+
+    public Set<String> nodes() {
+        return this.ring().nodes();
+    }
+
+    /**
+     * Looks a game up on the node that owns its id; completes with null if it is owned here or not found.
+     */
+    public CompletableFuture<RemoteGame> findGame(UUID gameId) {
+        return this.lookup(this.ownerOf(gameId), GET_GAME, gameId.toString());
+    }
+
+    public CompletableFuture<RemoteGame> resolveGame(String joinCode) {
+        return this.lookup(this.ownerOf(joinCode), RESOLVE_GAME, joinCode.toUpperCase());
+    }
+
+    @Override
+    public void onChanged(LobbyEntry previous, LobbyEntry current) {
+        LobbyEntry entry = current == null ? previous : current;
+        if(entry.node() != null) return;
+
+        // Re-read on the publisher thread, so racing notifications for one game cannot publish a stale state
+        UUID gameId = entry.uuid();
+        this.publisher.execute(() -> {
+            LobbyEntry latest = this.lobby.entry(gameId);
+            if(latest == null) {
+                this.bus.publish(LOBBY_REMOVE, gameId.toString());
+            } else if(latest.node() == null) {
+                try {
+                    ObjectNode json = this.serializer.valueToTree(latest);
+                    json.put("node_url", this.url);
+                    this.bus.publish(LOBBY_UPSERT, this.serializer.writeValueAsString(json));
+                } catch(JsonProcessingException e) {
+                    this.logger.error("Failed to serialize lobby entry {}", gameId, e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.publisher.shutdownNow();
+    }
+
+    private HashRing ring() {
+        HashRing ring = this.ring;
+        Set<String> nodes = this.bus.nodes();
+        if(!ring.nodes().equals(nodes)) this.ring = ring = new HashRing(nodes, this.virtualNodes);
+
+        return ring;
+    }
+
+    private boolean isLocal(String node) {
+        return node.equals(this.bus.nodeId());
+    }
+
+    private CompletableFuture<RemoteGame> lookup(String node, String type, String key) {
+        if(this.isLocal(node)) return CompletableFuture.completedFuture(null);
+
+        return this.bus.request(node, type, key).thenApply(reply -> {
+            if(reply == null) return null;
+
+            try {
+                JsonNode found = this.serializer.readTree(reply);
+                return new RemoteGame(node, found.path("node_url").asText(""), found.get("game").toString());
+            } catch(JsonProcessingException e) {
+                throw new IllegalStateException("Malformed reply from node %s".formatted(node), e);
+            }
+        });
+    }
+
+    private void sync() {
+        try {
+            this.publishSnapshot();
+
+            long now = System.nanoTime();
+            for(Map.Entry<String, Long> heard : this.lastHeard.entrySet()) {
+                if(now - heard.getValue() <= 3 * this.syncIntervalNanos) continue;
+
+                this.logger.info("Node {} has been silent for three sync intervals; dropping its lobby entries", heard.getKey());
+                this.lastHeard.remove(heard.getKey(), heard.getValue());
+                this.replaceEntries(heard.getKey(), List.of());
+            }
+        } catch(RuntimeException e) {
+            this.logger.error("Lobby sync failed", e);
+        }
+    }
+
+    private void publishSnapshot() {
+        try {
+            this.bus.publish(LOBBY_SYNC, this.localSnapshot());
+        } catch(JsonProcessingException e) {
+            this.logger.error("Failed to serialize the lobby snapshot", e);
+        }
+    }
+
+    private String localSnapshot() throws JsonProcessingException {
+        List<ObjectNode> local = new ArrayList<>();
+        for(LobbyEntry entry : this.lobby.snapshot()) {
+            if(entry.node() != null) continue;
+
+            ObjectNode json = this.serializer.valueToTree(entry);
+            json.put("node_url", this.url);
+            local.add(json);
+        }
+
+        return this.serializer.writeValueAsString(local);
+    }
+
+    private String handle(String from, String type, String payload) {
+        this.lastHeard.put(from, System.nanoTime());
+        try {
+            switch(type) {
+                case LOBBY_UPSERT -> this.lobby.put(this.remoteEntry(this.serializer.readTree(payload), from));
+                case LOBBY_SYNC -> this.applySnapshot(from, payload);
+                case LOBBY_REMOVE -> {
+                    UUID gameId = UUID.fromString(payload);
+                    LobbyEntry entry = this.lobby.entry(gameId);
+                    if(entry != null && from.equals(entry.node())) this.lobby.remove(gameId);
+                }
+                case LOBBY_SNAPSHOT -> {
+                    return this.localSnapshot();
+                }
+                case GET_GAME -> {
+                    return this.describe(this.gameService.getGame(UUID.fromString(payload)));
+                }
+                case RESOLVE_GAME -> {
+                    return this.describe(this.gameService.resolveGame(payload));
+                }
+                default -> this.logger.warn("Ignoring unknown cluster message {} from {}", type, from);
+            }
+        } catch(JsonProcessingException | IllegalArgumentException e) {
+            this.logger.warn("Ignoring malformed cluster message {} from {}", type, from, e);
+        }
+
+        return null;
+    }
+
+    private String describe(Game game) throws JsonProcessingException {
+        if(game == null) return null;
+
+        return this.serializer.writeValueAsString(Map.of(
+            "node_url", this.url,
+            "game", game
+        ));
+    }
+
+    private void applySnapshot(String node, String snapshot) {
+        this.lastHeard.put(node, System.nanoTime());
+        if(snapshot == null) return;
+
+        try {
+            List<LobbyEntry> entries = new ArrayList<>();
+            for(JsonNode entry : this.serializer.readTree(snapshot)) entries.add(this.remoteEntry(entry, node));
+            this.replaceEntries(node, entries);
+        } catch(JsonProcessingException | IllegalArgumentException | NullPointerException e) {
+            this.logger.warn("Ignoring malformed lobby snapshot from {}", node, e);
+        }
+    }
+
+    /**
+     * Makes the entries held for {@code node} exactly {@code entries}. Unchanged entries are left alone, so a
+     * periodic sync does not wake lobby subscribers.
+     */
+    private void replaceEntries(String node, List<LobbyEntry> entries) {
+        Set<UUID> kept = new HashSet<>();
+        for(LobbyEntry entry : entries) {
+            kept.add(entry.uuid());
+
+            LobbyEntry current = this.lobby.entry(entry.uuid());
+            if(current == null || !this.serializer.valueToTree(current).equals(this.serializer.valueToTree(entry))) this.lobby.put(entry);
+        }
+
+        for(LobbyEntry entry : this.lobby.snapshot()) {
+            if(node.equals(entry.node()) && !kept.contains(entry.uuid())) this.lobby.remove(entry.uuid());
+        }
+    }
+
+    private LobbyEntry remoteEntry(JsonNode entry, String node) {
+        String nodeUrl = entry.path("node_url").isMissingNode() ? null : entry.get("node_url").asText();
+
+        return new LobbyEntry(0, UUID.fromString(entry.get("uuid").asText()), entry.get("name").asText(), entry.get("starting_player").asText(),
+                entry.get("join_code").asText(), entry.get("board_size").asInt(), entry.get("win_length").asInt(), entry.get("player_count").asInt(),
+                entry.get("spectator_count").asInt(), entry.get("started").asBoolean(), node, nodeUrl);
+    }
+}
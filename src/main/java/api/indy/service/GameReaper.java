@@ -0,0 +1,172 @@
+package api.indy.service;
+
+import api.indy.model.game.Game;
+import api.indy.model.game.GameListener;
+import api.indy.util.TimingWheel;
+import api.indy.websocket.WebSocketStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evicts games nobody is using. Every game sits on a timing wheel at the deadline its current state allows;
+ * activity only bumps a timestamp on the game, and the deadline is recomputed lazily when the wheel reaches
+ * it, so a busy game is re-armed once per TTL rather than once per move.
+ */
+@Service
+public class GameReaper implements GameListener {
+    public enum Reason {
+        UNJOINED,
+        IDLE,
+        FINISHED
+    }
+
+    private final GameService gameService;
+    private final Map<Reason, Long> ttls;
+    private final TimingWheel<UUID> wheel;
+    private final Queue<UUID> arriving;
+    private final Set<UUID> tracked;
+    private final Map<Reason, LongAdder> evictions;
+    private final ScheduledExecutorService scheduler;
+    private final Logger logger;
+
+    public GameReaper(GameService gameService, @Value("${reaper.unjoinedTtl:10m}") Duration unjoinedTtl,
+                      @Value("${reaper.idleTtl:30m}") Duration idleTtl, @Value("${reaper.finishedTtl:5m}") Duration finishedTtl,
+                      @Value("${reaper.tick:1s}") Duration tick, @Value("${reaper.wheelSize:512}") int wheelSize) {
+        this.gameService = gameService;
+        this.ttls = new EnumMap<>(Map.of(
+            Reason.UNJOINED, unjoinedTtl.toMillis(),
+            Reason.IDLE, idleTtl.toMillis(),
+            Reason.FINISHED, finishedTtl.toMillis()
+        ));
+        this.wheel = new TimingWheel<>(tick.toMillis(), wheelSize, now());
+        this.arriving = new ConcurrentLinkedQueue<>();
+        this.tracked = ConcurrentHashMap.newKeySet();
+        this.evictions = new EnumMap<>(Reason.class);
+        for(Reason reason : Reason.values()) this.evictions.put(reason, new LongAdder());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.logger = LoggerFactory.getLogger(GameReaper.class);
+
+        gameService.addListener(this);
+        for(Game game : gameService.games()) this.onCreated(game);
+        this.scheduler.scheduleWithFixedDelay(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onCreated(Game game) {
+        if(this.tracked.add(game.uuid())) this.arriving.add(game.uuid());
+    }
+
+    @Override
+    public void onDeleted(Game game) {
+        // The wheel entry is left to expire on its own and is dropped once it finds the game gone
+        this.tracked.remove(game.uuid());
+    }
+
+    public int trackedGames() {
+        return this.tracked.size();
+    }
+
+    public long evictions(Reason reason) {
+        return this.evictions.get(reason).sum();
+    }
+
+    public long evictions() {
+        long total = 0;
+        for(LongAdder adder : this.evictions.values()) total += adder.sum();
+
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            long now = now();
+            for(UUID gameId = this.arriving.poll(); gameId != null; gameId = this.arriving.poll()) this.arm(gameId, now);
+
+            this.wheel.advance(now, gameId -> this.arm(gameId, now));
+        } catch(RuntimeException e) {
+            this.logger.error("Game reaper tick failed", e);
+        }
+    }
+
+    private void arm(UUID gameId, long now) {
+        Game game = this.gameService.getGame(gameId);
+        if(game == null || !this.tracked.contains(gameId)) {
+            this.tracked.remove(gameId);
+            return;
+        }
+
+        long deadline = this.deadline(game);
+        if(deadline > now) {
+            this.wheel.schedule(gameId, deadline);
+            return;
+        }
+
+        // Decided again on the game's own mailbox, which does not count as activity, so a racing move wins
+        game.mailbox().submit(() -> {
+            if(this.gameService.getGame(gameId) != game) return;
+
+            Reason reason = reason(game);
+            if(this.deadline(game) > now()) {
+                this.arriving.add(gameId);
+                return;
+            }
+
+            this.evict(game, reason);
+        });
+    }
+
+    private void evict(Game game, Reason reason) {
+        try {
+            game.broadcast(Map.of(
+                "type", "game_expired",
+                "reason", reason.name().toLowerCase()
+            ));
+        } catch(IOException ignored) {}
+
+        for(WebSocketSession session : game.players().keySet()) {
+            try {
+                session.close(WebSocketStatus.GAME_EXPIRED);
+            } catch(IOException ignored) {}
+        }
+        game.closeSpectators(WebSocketStatus.GAME_EXPIRED);
+
+        this.tracked.remove(game.uuid());
+        this.gameService.deleteGame(game.uuid());
+        this.evictions.get(reason).increment();
+        this.logger.info("Evicted {} game {}", reason.name().toLowerCase(), game.uuid());
+    }
+
+    private long deadline(Game game) {
+        return TimeUnit.NANOSECONDS.toMillis(game.lastActivity()) + this.ttls.get(reason(game));
+    }
+
+    private static Reason reason(Game game) {
+        if(game.playerCount() == 0) return Reason.UNJOINED;
+        if(game.finished()) return Reason.FINISHED;
+
+        return Reason.IDLE;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,103 @@
+package api.indy.service;
+
+import api.indy.model.game.Game;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Games indexed by id, join code, owner and visibility. Reads are lock-free; adds and removes of the
+ * same game are serialized on a lock stripe so the indexes are updated together. A game only becomes
+ * visible by id once its other indexes are in place.
+ */
+public class GameRegistry {
+    private static final int STRIPES = 64;
+
+    private final Map<UUID, Game> byId;
+    private final Map<String, Game> byCode;
+    private final Map<String, Set<UUID>> byOwner;
+    private final Map<UUID, Game> publicGames;
+    private final Object[] stripes;
+
+    public GameRegistry() {
+        this.byId = new ConcurrentHashMap<>();
+        this.byCode = new ConcurrentHashMap<>();
+        this.byOwner = new ConcurrentHashMap<>();
+        this.publicGames = new ConcurrentHashMap<>();
+        this.stripes = new Object[STRIPES];
+        for(int i = 0; i < STRIPES; i++) this.stripes[i] = new Object();
+    }
+
+    public boolean add(Game game) {
+        synchronized(this.stripe(game.uuid())) {
+            if(this.byId.containsKey(game.uuid()) || this.byCode.putIfAbsent(game.joinCode(), game) != null) return false;
+
+            this.byOwner.compute(game.owner(), (owner, games) -> {
+                if(games == null) games = ConcurrentHashMap.newKeySet();
+                games.add(game.uuid());
+                return games;
+            });
+            if(game.visibility() == Game.Visibility.PUBLIC) this.publicGames.put(game.uuid(), game);
+            this.byId.put(game.uuid(), game);
+
+            return true;
+        }
+    }
+
+    public Game remove(UUID gameId) {
+        synchronized(this.stripe(gameId)) {
+            Game game = this.byId.remove(gameId);
+            if(game == null) return null;
+
+            this.publicGames.remove(gameId);
+            this.byOwner.computeIfPresent(game.owner(), (owner, games) -> {
+                games.remove(gameId);
+                return games.isEmpty() ? null : games;
+            });
+            this.byCode.remove(game.joinCode(), game);
+
+            return game;
+        }
+    }
+
+    public Game get(UUID gameId) {
+        return this.byId.get(gameId);
+    }
+
+    public Game byCode(String code) {
+        return this.byCode.get(code);
+    }
+
+    public boolean codeExists(String code) {
+        return this.byCode.containsKey(code);
+    }
+
+    public List<Game> byOwner(String owner) {
+        Set<UUID> ids = this.byOwner.get(owner);
+        if(ids == null) return List.of();
+
+        List<Game> games = new ArrayList<>(ids.size());
+        for(UUID id : ids) {
+            Game game = this.byId.get(id);
+            if(game != null) games.add(game);
+        }
+
+        return games;
+    }
+
+    public Collection<Game> publicGames() {
+        return Collections.unmodifiableCollection(this.publicGames.values());
+    }
+
+    public Collection<Game> all() {
+        return Collections.unmodifiableCollection(this.byId.values());
+    }
+
+    public int size() {
+        return this.byId.size();
+    }
+
+    private Object stripe(UUID gameId) {
+        return this.stripes[(gameId.hashCode() & 0x7FFFFFFF) % STRIPES];
+    }
+}
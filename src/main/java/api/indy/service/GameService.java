@@ -1,73 +1,165 @@
 package api.indy.service;
 
 import api.indy.model.game.Game;
+import api.indy.model.game.GameListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
 public class GameService {
-    private final AuthService authService;
-    private final Map<UUID, Game> games;
-    private final Map<String, UUID> gameCodes;
+    /**
+     * Decides which games this node may host; new ids and join codes are drawn until both land here.
+     */
+    public interface Placement {
+        boolean owns(UUID gameId);
+
+        boolean owns(String joinCode);
+    }
+
+    private static final Placement EVERYTHING = new Placement() {
+        @Override
+        public boolean owns(UUID gameId) {
+            return true;
+        }
 
-    public GameService(AuthService authService) {
+        @Override
+        public boolean owns(String joinCode) {
+            return true;
+        }
+    };
+
+    private final AuthService authService;
+    private final GameRegistry games;
+    private final LobbyIndex lobby;
+    private final ExecutorService workers;
+    private final List<GameListener> listeners;
+    private final Timer fanOutTimer;
+    private volatile Placement placement;
+
+    public GameService(AuthService authService, @Value("${game.workers:0}") int workers, MeterRegistry registry) {
         this.authService = authService;
-        this.games = new HashMap<>();
-        this.gameCodes = new HashMap<>();
+        this.games = new GameRegistry();
+        this.lobby = new LobbyIndex();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.placement = EVERYTHING;
+        this.fanOutTimer = Timer.builder("game.broadcast")
+                .description("Time to hand one event to every player and spectator of a game")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(registry);
+        this.workers = Executors.newFixedThreadPool(workers > 0 ? workers : Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "game-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private String generateCode() {
-        String code = UUID.randomUUID().toString().substring(0, 6);
-        while(this.gameCodes.containsKey(code.toUpperCase())) code = UUID.randomUUID().toString().substring(0, 6);
+        String code = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+        while(this.games.codeExists(code) || !this.placement.owns(code)) code = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+
+        return code;
+    }
 
-        return code.toUpperCase();
+    public Game createGame(String ownerId, String name, String starting_player, String visibility, int boardSize, int winLength) {
+        return this.register(ownerId, name, starting_player, visibility, null, boardSize, winLength);
     }
 
-    public Game createGame(String ownerId, String name, String starting_player, String visibility) {
-        UUID gameId = UUID.randomUUID();
-        String code = this.generateCode();
+    public Game createGame(String ownerId, String name, String starting_player, String visibility, String password, int boardSize, int winLength) {
+        return this.register(ownerId, name, starting_player, visibility, authService.hashPassword(password), boardSize, winLength);
+    }
 
-        Game game = new Game(gameId, ownerId, name, starting_player, visibility, code, null);
-        this.games.put(gameId, game);
-        this.gameCodes.put(code, gameId);
+    /**
+     * Attaches a listener to every current and future game and notifies it of creations and deletions.
+     */
+    public void addListener(GameListener listener) {
+        this.listeners.add(listener);
+        for(Game game : this.games.all()) game.addListener(listener);
+    }
 
-        return game;
+    public void setPlacement(Placement placement) {
+        this.placement = placement;
     }
 
-    public Game createGame(String ownerId, String name, String starting_player, String visibility, String password) {
-        UUID gameId = UUID.randomUUID();
-        String code = this.generateCode();
+    public Game restoreGame(UUID uuid, String ownerId, String name, String starting_player, String visibility, String joinCode, String passwordHash, int boardSize, int winLength) {
+        Game game = new Game(uuid, ownerId, name, starting_player, visibility, joinCode, passwordHash, boardSize, winLength, this.workers, this.fanOutTimer);
+        if(!this.games.add(game)) return this.games.get(uuid);
+
+        this.track(game);
+        this.listeners.forEach(listener -> listener.onCreated(game));
 
-        Game game = new Game(gameId, ownerId, name, starting_player, visibility, code, authService.hashPassword(password));
-        this.games.put(gameId, game);
-        this.gameCodes.put(code, gameId);
         return game;
     }
 
     public void deleteGame(UUID gameId) {
-        Game game = this.games.get(gameId);
+        Game game = this.games.remove(gameId);
         if(game == null) return;
 
-        this.games.remove(gameId);
-        this.gameCodes.remove(game.joinCode());
+        this.lobby.remove(gameId);
+        this.listeners.forEach(listener -> listener.onDeleted(game));
     }
 
     public Game getGame(UUID gameId) {
+        if(gameId == null) return null;
+
         return this.games.get(gameId);
     }
 
     public Game resolveGame(String code) {
-        UUID gameId = this.gameCodes.get(code.toUpperCase());
-        if(gameId == null) return null;
+        return this.games.byCode(code.toUpperCase());
+    }
 
-        return this.games.get(gameId);
+    public LobbyIndex lobby() {
+        return this.lobby;
+    }
+
+    public Collection<Game> games() {
+        return this.games.all();
+    }
+
+    public List<Game> gamesByOwner(String ownerId) {
+        return this.games.byOwner(ownerId);
+    }
+
+    public int gameCount() {
+        return this.games.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.workers.shutdownNow();
+    }
+
+    private Game register(String ownerId, String name, String starting_player, String visibility, String passwordHash, int boardSize, int winLength) {
+        Game game;
+        do {
+            UUID uuid = UUID.randomUUID();
+            while(!this.placement.owns(uuid)) uuid = UUID.randomUUID();
+
+            game = new Game(uuid, ownerId, name, starting_player, visibility, this.generateCode(), passwordHash, boardSize, winLength, this.workers, this.fanOutTimer);
+        } while(!this.games.add(game));
+
+        this.track(game);
+        this.listeners.forEach(listener -> listener.onCreated(game));
+
+        return game;
     }
 
-    public List<Game> listGames() {
-        return new ArrayList<>(this.games.values()).stream()
-                .filter(game -> game.visibility() == Game.Visibility.PUBLIC)
-                .collect(Collectors.toList());
+    private void track(Game game) {
+        if(game.visibility() == Game.Visibility.PUBLIC) {
+            this.lobby.add(game);
+            game.addListener(this.lobby);
+        }
+        this.listeners.forEach(game::addListener);
     }
 }
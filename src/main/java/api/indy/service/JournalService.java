@@ -0,0 +1,353 @@
+package api.indy.service;
+
+import api.indy.journal.Journal;
+import api.indy.model.game.Game;
+import api.indy.model.game.GameListener;
+import api.indy.model.game.Player;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Journals game lifecycle events and moves, takes periodic snapshots, and rebuilds every game from the
+ * newest snapshot plus the log after it at startup. Snapshots are fuzzy: they record the log position
+ * first and capture each game on its own mailbox afterwards, and every record replays idempotently, so
+ * replaying from that position over the snapshot always converges. A started game's seats are kept with
+ * their players' tokens, so the same players can reconnect to it after a restart.
+ */
+@Service
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+public class JournalService implements GameListener {
+    private static final byte CREATED = 1;
+    private static final byte STARTED = 2;
+    private static final byte MOVE = 3;
+    private static final byte ENDED = 4;
+    private static final byte DELETED = 5;
+
+    private static final int SNAPSHOT_MAGIC = 0x54545453;
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final GameService gameService;
+    private final Path directory;
+    private final Journal journal;
+    private final ScheduledExecutorService snapshotter;
+    private final long recoveryMillis;
+    private final int recoveredGames;
+    private final Logger logger;
+
+    public JournalService(GameService gameService, @Value("${journal.dir:data/journal}") Path directory,
+                          @Value("${journal.segmentSize:64MB}") DataSize segmentSize, @Value("${journal.maxBatch:4096}") int maxBatch,
+                          @Value("${journal.snapshotInterval:5m}") Duration snapshotInterval) throws IOException {
+        this.gameService = gameService;
+        this.directory = directory;
+        this.logger = LoggerFactory.getLogger(JournalService.class);
+
+        long start = System.nanoTime();
+        long next = Journal.replay(directory, this.loadSnapshot(), this::apply);
+        this.journal = new Journal(directory, next, segmentSize.toBytes(), maxBatch);
+        this.recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        this.recoveredGames = gameService.gameCount();
+        this.logger.info("Recovered {} games up to journal record {} in {} ms", this.recoveredGames, next, this.recoveryMillis);
+
+        gameService.addListener(this);
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onCreated(Game game) {
+        this.journal.append(CREATED, ByteBuffer.wrap(describe(game)));
+    }
+
+    @Override
+    public void onStarted(Game game) {
+        this.journal.append(STARTED, ByteBuffer.wrap(seats(game)));
+    }
+
+    @Override
+    public void onMove(Game game, int ply, short move) {
+        this.journal.append(MOVE, uuid(game.uuid(), 4).putShort((short) ply).putShort(move).flip());
+    }
+
+    @Override
+    public void onEnded(Game game, Game.WinState state, Player winner) {
+        this.journal.append(ENDED, uuid(game.uuid(), 0).flip());
+    }
+
+    @Override
+    public void onDeleted(Game game) {
+        this.journal.append(DELETED, uuid(game.uuid(), 0).flip());
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     */
+    public void flush() {
+        this.journal.flush().join();
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long sequence = this.journal.flush().join();
+
+        List<CompletableFuture<byte[]>> states = new ArrayList<>();
+        for(Game game : this.gameService.games()) {
+            CompletableFuture<byte[]> state = new CompletableFuture<>();
+            // Straight onto the mailbox: a snapshot is not activity, and going through Game.submit would keep every game from expiring
+            game.mailbox().submit(() -> state.complete(snapshotState(game)));
+            states.add(state);
+        }
+
+        Path temp = this.directory.resolve("snapshot.tmp");
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.allocate(16).putInt(SNAPSHOT_MAGIC).putLong(sequence).putInt(states.size()).flip());
+            for(CompletableFuture<byte[]> state : states) {
+                byte[] bytes = state.get(30, TimeUnit.SECONDS);
+                writeFully(channel, ByteBuffer.allocate(4).putInt(bytes.length).flip());
+                writeFully(channel, ByteBuffer.wrap(bytes));
+            }
+            channel.force(true);
+        } catch(InterruptedException | ExecutionException | TimeoutException e) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Failed to capture game state for snapshot", e);
+        }
+
+        Path snapshot = this.directory.resolve("%020d%s".formatted(sequence, SNAPSHOT_SUFFIX));
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for(Path old : this.snapshots()) {
+            if(!old.equals(snapshot)) Files.deleteIfExists(old);
+        }
+        this.journal.truncateBefore(sequence);
+    }
+
+    public long recoveryMillis() {
+        return this.recoveryMillis;
+    }
+
+    public int recoveredGames() {
+        return this.recoveredGames;
+    }
+
+    public long nextSequence() {
+        return this.journal.nextSequence();
+    }
+
+    public int pendingRecords() {
+        return this.journal.pending();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        this.snapshotter.shutdownNow();
+        this.journal.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            this.snapshot();
+        } catch(IOException | RuntimeException e) {
+            this.logger.error("Journal snapshot failed", e);
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        if(!Files.isDirectory(this.directory)) return 0;
+
+        List<Path> snapshots = this.snapshots();
+        if(snapshots.isEmpty()) return 0;
+
+        Path latest = snapshots.get(snapshots.size() - 1);
+        try(FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a game snapshot: %s".formatted(latest));
+
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            for(int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                ByteBuffer state = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                Game game = this.restore(state);
+                boolean started = state.get() == 1;
+                int moves = state.getShort();
+                short[] history = null;
+                if(moves >= 0) {
+                    history = new short[moves];
+                    for(int m = 0; m < moves; m++) history[m] = state.getShort();
+                }
+                game.restore(started, history, readSeats(state));
+            }
+
+            return sequence;
+        }
+    }
+
+    private void apply(long sequence, byte type, ByteBuffer payload) {
+        if(type == CREATED) {
+            this.restore(payload);
+            return;
+        }
+
+        UUID gameId = new UUID(payload.getLong(), payload.getLong());
+        Game game = this.gameService.getGame(gameId);
+        if(game == null) return;
+
+        switch(type) {
+            case STARTED -> game.restoreStart(readSeats(payload));
+            case MOVE -> game.restoreMove(payload.getShort() & 0xFFFF, payload.getShort());
+            case ENDED -> game.restoreEnd();
+            case DELETED -> this.gameService.deleteGame(gameId);
+            default -> this.logger.warn("Skipping unknown journal record type {} at {}", type, sequence);
+        }
+    }
+
+    private Game restore(ByteBuffer description) {
+        UUID gameId = new UUID(description.getLong(), description.getLong());
+        String owner = readString(description), name = readString(description), startingPlayer = readString(description);
+        String visibility = readString(description), joinCode = readString(description), password = readString(description);
+        int boardSize = description.get() & 0xFF, winLength = description.get() & 0xFF;
+
+        return this.gameService.restoreGame(gameId, owner, name, startingPlayer, visibility, joinCode, password, boardSize, winLength);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try(Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static byte[] describe(Game game) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeDescription(out, game);
+
+            return bytes.toByteArray();
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] seats(Game game) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(game.uuid().getMostSignificantBits());
+            out.writeLong(game.uuid().getLeastSignificantBits());
+            writeSeats(out, game.seats());
+
+            return bytes.toByteArray();
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] snapshotState(Game game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeDescription(out, game);
+
+        short[] history = game.history();
+        out.writeByte(game.started() ? 1 : 0);
+        out.writeShort(history == null ? -1 : history.length);
+        if(history != null) {
+            for(short move : history) out.writeShort(move);
+        }
+        writeSeats(out, game.started() ? game.seats() : List.of());
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeDescription(DataOutputStream out, Game game) throws IOException {
+        out.writeLong(game.uuid().getMostSignificantBits());
+        out.writeLong(game.uuid().getLeastSignificantBits());
+        writeString(out, game.owner());
+        writeString(out, game.name());
+        writeString(out, game.startingPlayer());
+        writeString(out, game.visibility().name());
+        writeString(out, game.joinCode());
+        writeString(out, game.password());
+        out.writeByte(game.boardSize());
+        out.writeByte(game.winLength());
+    }
+
+    private static void writeSeats(DataOutputStream out, List<Game.Seat> seats) throws IOException {
+        out.writeByte(seats.size());
+        for(Game.Seat seat : seats) {
+            writeString(out, seat.token());
+            out.writeByte(seat.id());
+            writeString(out, seat.name());
+            writeString(out, seat.symbol());
+        }
+    }
+
+    /**
+     * Records written before seats were journalled end where the seats would start, and restore with none.
+     */
+    private static List<Game.Seat> readSeats(ByteBuffer buffer) {
+        if(!buffer.hasRemaining()) return List.of();
+
+        int count = buffer.get() & 0xFF;
+        List<Game.Seat> seats = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            String token = readString(buffer);
+            int id = buffer.get() & 0xFF;
+            seats.add(new Game.Seat(token, id, readString(buffer), readString(buffer)));
+        }
+
+        return seats;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if(value == null) {
+            out.writeShort(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if(length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer uuid(UUID gameId, int extra) {
+        return ByteBuffer.allocate(16 + extra).putLong(gameId.getMostSignificantBits()).putLong(gameId.getLeastSignificantBits());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -0,0 +1,314 @@
+package api.indy.service;
+
+import api.indy.model.game.LobbyEntry;
+import api.indy.model.game.LobbyEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes lobby changes to SSE subscribers. Changes are coalesced per game over a short window and each
+ * flush is serialized once for all subscribers. Every subscriber has a bounded queue; one that falls
+ * behind has its backlog dropped and is sent a fresh snapshot instead. A subscriber whose connection
+ * stops accepting writes altogether is evicted once a single send outlasts the send timeout.
+ */
+@Service
+public class LobbyFeed implements LobbyIndex.Listener {
+    private static class Frame {
+        private final String name;
+        private final String data;
+
+        private Frame(String name, String data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue;
+        private final AtomicBoolean draining;
+        private final AtomicBoolean resync;
+        private final AtomicBoolean evicted;
+        private final AtomicBoolean compensated;
+        private volatile long sendStart;
+
+        private Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.draining = new AtomicBoolean();
+            this.resync = new AtomicBoolean();
+            this.evicted = new AtomicBoolean();
+            this.compensated = new AtomicBoolean();
+        }
+
+        private void offer(Frame frame) {
+            if(!this.queue.offer(frame) && !this.resync.getAndSet(true)) resyncs.increment();
+            this.schedule();
+        }
+
+        private void schedule() {
+            if(!this.draining.compareAndSet(false, true)) return;
+
+            try {
+                senders.execute(this::drain);
+            } catch(RejectedExecutionException e) {
+                this.draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                while(!this.evicted.get()) {
+                    if(this.resync.getAndSet(false)) {
+                        this.queue.clear();
+                        this.send(snapshot());
+                    }
+
+                    Frame frame = this.queue.poll();
+                    if(frame == null) break;
+                    this.send(frame);
+                }
+            } catch(IOException | IllegalStateException e) {
+                this.close();
+                return;
+            } finally {
+                this.draining.set(false);
+            }
+
+            if(this.evicted.get()) return;
+            if(!this.queue.isEmpty() || this.resync.get()) this.schedule();
+        }
+
+        private void send(Frame frame) throws IOException {
+            this.sendStart = System.nanoTime();
+            try {
+                if(frame.name == null) this.emitter.send(SseEmitter.event().comment(frame.data));
+                else this.emitter.send(SseEmitter.event().name(frame.name).data(frame.data, MediaType.APPLICATION_JSON));
+            } finally {
+                this.sendStart = 0;
+                if(this.compensated.getAndSet(false)) shrinkSenders();
+            }
+        }
+
+        private boolean stalled(long now) {
+            long start = this.sendStart;
+            return start != 0 && now - start > sendTimeoutNanos;
+        }
+
+        private void evict() {
+            if(!this.evicted.compareAndSet(false, true)) return;
+
+            subscribers.remove(this);
+            this.queue.clear();
+            evictions.increment();
+
+            // The stuck write holds its sender until it fails, so the pool gets a stand-in thread meanwhile
+            if(this.compensated.compareAndSet(false, true)) {
+                growSenders();
+                if(this.sendStart == 0 && this.compensated.getAndSet(false)) shrinkSenders();
+            }
+
+            // Completing takes the emitter's write lock, which the stuck send is holding, so it gets its own thread
+            try {
+                closers.execute(this.emitter::complete);
+            } catch(RejectedExecutionException ignored) {}
+        }
+
+        private void close() {
+            subscribers.remove(this);
+            this.queue.clear();
+            this.emitter.complete();
+        }
+    }
+
+    private static final Frame HEARTBEAT = new Frame(null, "ping");
+
+    private final LobbyIndex lobby;
+    private final Map<UUID, LobbyEvent.Type> pending;
+    private final Set<Subscriber> subscribers;
+    private final int queueSize;
+    private final int maxSubscribers;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor senders;
+    private final ExecutorService closers;
+    private final long sendTimeoutNanos;
+    private final ObjectMapper serializer;
+    private final LongAdder resyncs;
+    private final LongAdder flushes;
+    private final LongAdder evictions;
+    private final Logger logger;
+
+    public LobbyFeed(GameService gameService, @Value("${lobby.feed.window:100ms}") Duration window,
+                     @Value("${lobby.feed.heartbeat:15s}") Duration heartbeat, @Value("${lobby.feed.queue:64}") int queueSize,
+                     @Value("${lobby.feed.maxSubscribers:10000}") int maxSubscribers, @Value("${lobby.feed.senders:2}") int senders,
+                     @Value("${lobby.feed.sendTimeout:5s}") Duration sendTimeout) {
+        this.lobby = gameService.lobby();
+        this.pending = new ConcurrentHashMap<>();
+        this.subscribers = ConcurrentHashMap.newKeySet();
+        this.queueSize = queueSize;
+        this.maxSubscribers = maxSubscribers;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lobby-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senders = new ThreadPoolExecutor(senders, senders, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "lobby-feed-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.closers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "lobby-feed-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.serializer = new ObjectMapper();
+        this.resyncs = new LongAdder();
+        this.flushes = new LongAdder();
+        this.evictions = new LongAdder();
+        this.logger = LoggerFactory.getLogger(LobbyFeed.class);
+
+        this.lobby.addListener(this);
+        this.scheduler.scheduleWithFixedDelay(this::flush, window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleAtFixedRate(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+
+        long period = Math.max(10, sendTimeout.toMillis() / 4);
+        this.scheduler.scheduleWithFixedDelay(this::evictStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        // Registering under the flush lock means every delta flushed from now on is offered to the subscriber. The
+        // snapshot itself is only built by its first drain, which drops anything queued before it, so no delta
+        // older than the snapshot is ever sent
+        synchronized(this.pending) {
+            if(this.subscribers.size() >= this.maxSubscribers) return null;
+
+            SseEmitter emitter = new SseEmitter(0L);
+            Subscriber subscriber = new Subscriber(emitter, this.queueSize);
+            emitter.onCompletion(() -> this.subscribers.remove(subscriber));
+            emitter.onError(e -> this.subscribers.remove(subscriber));
+
+            this.subscribers.add(subscriber);
+            subscriber.resync.set(true);
+            subscriber.schedule();
+
+            return emitter;
+        }
+    }
+
+    @Override
+    public void onChanged(LobbyEntry previous, LobbyEntry current) {
+        LobbyEvent.Type type = previous == null ? LobbyEvent.Type.ADDED
+                : current == null ? LobbyEvent.Type.REMOVED
+                : !previous.started() && current.started() ? LobbyEvent.Type.STARTED
+                : LobbyEvent.Type.UPDATED;
+        UUID gameId = previous == null ? current.uuid() : previous.uuid();
+
+        this.pending.merge(gameId, type, LobbyFeed::coalesce);
+    }
+
+    public int subscriberCount() {
+        return this.subscribers.size();
+    }
+
+    public long resyncs() {
+        return this.resyncs.sum();
+    }
+
+    public long flushes() {
+        return this.flushes.sum();
+    }
+
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+        this.senders.shutdownNow();
+        this.closers.shutdownNow();
+        for(Subscriber subscriber : this.subscribers) subscriber.emitter.complete();
+        this.subscribers.clear();
+    }
+
+    private void flush() {
+        try {
+            synchronized(this.pending) {
+                if(this.pending.isEmpty()) return;
+
+                List<LobbyEvent> events = new ArrayList<>(this.pending.size());
+                for(UUID gameId : this.pending.keySet()) {
+                    LobbyEvent.Type type = this.pending.remove(gameId);
+                    if(type == null) continue;
+
+                    LobbyEntry entry = this.lobby.entry(gameId);
+
+                    // Entries are re-read here, so racing notifications for the same game cannot publish a stale state
+                    if(entry == null) {
+                        if(type != LobbyEvent.Type.ADDED) events.add(new LobbyEvent(LobbyEvent.Type.REMOVED, gameId, null));
+                    } else if(type != LobbyEvent.Type.REMOVED) {
+                        events.add(new LobbyEvent(type, gameId, entry));
+                    }
+                }
+                if(events.isEmpty()) return;
+
+                Frame frame = new Frame("delta", this.serializer.writeValueAsString(events));
+                for(Subscriber subscriber : this.subscribers) subscriber.offer(frame);
+                this.flushes.increment();
+            }
+        } catch(JsonProcessingException e) {
+            this.logger.error("Failed to serialize lobby delta", e);
+        }
+    }
+
+    /**
+     * Runs on the scheduler rather than a sender, so it keeps running when every sender is stuck.
+     */
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for(Subscriber subscriber : this.subscribers) {
+            if(subscriber.stalled(now)) subscriber.evict();
+        }
+    }
+
+    private synchronized void growSenders() {
+        this.senders.setMaximumPoolSize(this.senders.getMaximumPoolSize() + 1);
+        this.senders.setCorePoolSize(this.senders.getCorePoolSize() + 1);
+    }
+
+    private synchronized void shrinkSenders() {
+        this.senders.setCorePoolSize(this.senders.getCorePoolSize() - 1);
+        this.senders.setMaximumPoolSize(this.senders.getMaximumPoolSize() - 1);
+    }
+
+    private void heartbeat() {
+        for(Subscriber subscriber : this.subscribers) subscriber.offer(HEARTBEAT);
+    }
+
+    private Frame snapshot() throws JsonProcessingException {
+        return new Frame("snapshot", this.serializer.writeValueAsString(this.lobby.snapshot()));
+    }
+
+    private static LobbyEvent.Type coalesce(LobbyEvent.Type previous, LobbyEvent.Type next) {
+        if(previous == LobbyEvent.Type.ADDED) return next == LobbyEvent.Type.REMOVED ? null : LobbyEvent.Type.ADDED;
+        if(previous == LobbyEvent.Type.STARTED && next == LobbyEvent.Type.UPDATED) return LobbyEvent.Type.STARTED;
+
+        return next;
+    }
+}
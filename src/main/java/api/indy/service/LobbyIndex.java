@@ -0,0 +1,186 @@
+package api.indy.service;
+
+import api.indy.model.game.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight snapshots of public games in creation order, kept current through {@link GameListener}
+ * callbacks. Serialized pages are cached against a version counter that moves on every change.
+ */
+public class LobbyIndex implements GameListener {
+    public interface Listener {
+        /**
+         * Called after an entry changes; {@code previous} is null for added games and {@code current} is null
+         * for removed ones. Calls for the same game can race, so listeners should re-read {@link #entry(UUID)}.
+         */
+        void onChanged(LobbyEntry previous, LobbyEntry current);
+    }
+
+    public enum Filter {
+        ALL,
+        OPEN,
+        STARTED
+    }
+
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 1024;
+
+    private static class CachedPage {
+        private final long version;
+        private final byte[] json;
+
+        private CachedPage(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private final Map<UUID, LobbyEntry> entries;
+    private final NavigableMap<Long, UUID> order;
+    private final Map<String, CachedPage> pages;
+    private final AtomicLong sequence;
+    private final AtomicLong version;
+    private final ObjectMapper serializer;
+    private final List<Listener> listeners;
+
+    public LobbyIndex() {
+        this.entries = new ConcurrentHashMap<>();
+        this.order = new ConcurrentSkipListMap<>();
+        this.pages = new ConcurrentHashMap<>();
+        this.sequence = new AtomicLong();
+        this.version = new AtomicLong();
+        this.serializer = new ObjectMapper();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void add(Game game) {
+        long sequence = this.sequence.incrementAndGet();
+        LobbyEntry entry = new LobbyEntry(sequence, game);
+        this.entries.put(game.uuid(), entry);
+        this.order.put(sequence, game.uuid());
+        this.version.incrementAndGet();
+        this.notify(null, entry);
+    }
+
+    /**
+     * Adds or replaces an entry for a game hosted on another node. The entry keeps its place in the order
+     * across updates.
+     */
+    public void put(LobbyEntry remote) {
+        LobbyEntry[] previous = new LobbyEntry[1];
+        LobbyEntry current = this.entries.compute(remote.uuid(), (id, entry) -> {
+            previous[0] = entry;
+            return remote.withSequence(entry == null ? this.sequence.incrementAndGet() : entry.sequence());
+        });
+        if(previous[0] == null) this.order.put(current.sequence(), current.uuid());
+
+        this.version.incrementAndGet();
+        this.notify(previous[0], current);
+    }
+
+    public void remove(UUID gameId) {
+        LobbyEntry entry = this.entries.remove(gameId);
+        if(entry == null) return;
+
+        this.order.remove(entry.sequence());
+        this.version.incrementAndGet();
+        this.notify(entry, null);
+    }
+
+    @Override
+    public void onPlayersChanged(Game game) {
+        this.update(game);
+    }
+
+    @Override
+    public void onStarted(Game game) {
+        this.update(game);
+    }
+
+    @Override
+    public void onEnded(Game game, Game.WinState state, Player winner) {
+        this.update(game);
+    }
+
+    public LobbyPage page(Long cursor, Filter filter, int limit) {
+        List<LobbyEntry> games = new ArrayList<>(limit);
+        NavigableMap<Long, UUID> tail = cursor == null ? this.order : this.order.tailMap(cursor, false);
+
+        for(UUID gameId : tail.values()) {
+            LobbyEntry entry = this.entries.get(gameId);
+            if(entry == null || !matches(entry, filter)) continue;
+
+            if(games.size() == limit) return new LobbyPage(games, Long.toString(games.get(limit - 1).sequence()));
+            games.add(entry);
+        }
+
+        return new LobbyPage(games, null);
+    }
+
+    public byte[] pageJson(Long cursor, Filter filter, int limit) throws IOException {
+        String key = cursor + ":" + filter + ":" + limit;
+        long version = this.version.get();
+
+        CachedPage cached = this.pages.get(key);
+        if(cached != null && cached.version == version) return cached.json;
+
+        byte[] json = serializer.writeValueAsBytes(this.page(cursor, filter, limit));
+        if(this.pages.size() >= MAX_CACHED_PAGES) this.pages.clear();
+        this.pages.put(key, new CachedPage(version, json));
+
+        return json;
+    }
+
+    public LobbyEntry entry(UUID gameId) {
+        return this.entries.get(gameId);
+    }
+
+    public List<LobbyEntry> snapshot() {
+        List<LobbyEntry> games = new ArrayList<>(this.entries.size());
+        for(UUID gameId : this.order.values()) {
+            LobbyEntry entry = this.entries.get(gameId);
+            if(entry != null) games.add(entry);
+        }
+
+        return games;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    private void update(Game game) {
+        LobbyEntry[] previous = new LobbyEntry[1];
+        LobbyEntry current = this.entries.computeIfPresent(game.uuid(), (id, entry) -> {
+            previous[0] = entry;
+            return new LobbyEntry(entry.sequence(), game);
+        });
+        if(current == null) return;
+
+        this.version.incrementAndGet();
+        this.notify(previous[0], current);
+    }
+
+    private void notify(LobbyEntry previous, LobbyEntry current) {
+        for(Listener listener : this.listeners) listener.onChanged(previous, current);
+    }
+
+    private static boolean matches(LobbyEntry entry, Filter filter) {
+        return switch(filter) {
+            case ALL -> true;
+            case OPEN -> entry.open();
+            case STARTED -> entry.started();
+        };
+    }
+}
@@ -0,0 +1,382 @@
+package api.indy.service;
+
+import api.indy.model.game.Board;
+import api.indy.model.game.Game;
+import api.indy.model.game.GameListener;
+import api.indy.model.game.MatchPage;
+import api.indy.model.game.MatchRecord;
+import api.indy.model.game.Player;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only archive of finished matches. Each record holds the metadata and move order of one match;
+ * small boards store the whole move order packed into a single long. Only file offsets and the fields
+ * needed to filter are kept in memory, so pages and replays are read from disk on demand.
+ */
+@Service
+@ConditionalOnProperty(name = "archive.enabled", havingValue = "true")
+public class MatchArchive implements GameListener {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final int HEADER = 8;
+    private static final int LOAD_CHUNK = 1 << 20;
+    private static final byte PACKED = 0;
+    private static final byte MOVES = 1;
+
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if(this.size == this.ids.length) this.ids = Arrays.copyOf(this.ids, this.size * 2);
+            this.ids[this.size++] = id;
+        }
+
+        /**
+         * Up to {@code limit} ids below {@code before}, newest first.
+         */
+        private int[] below(int before, int limit) {
+            int end = Arrays.binarySearch(this.ids, 0, this.size, before);
+            if(end < 0) end = -end - 1;
+
+            int count = Math.min(limit, end);
+            int[] page = new int[count];
+            for(int i = 0; i < count; i++) page[i] = this.ids[end - 1 - i];
+
+            return page;
+        }
+    }
+
+    private final FileChannel channel;
+    private final ExecutorService writer;
+    private final Postings listed;
+    private final Map<UUID, Postings> byGame;
+    private final Map<Long, Postings> byOwner;
+    private final Logger logger;
+    private long[] offsets;
+    private long[] endedAt;
+    private int count;
+    private long size;
+    private long lastEndedAt;
+
+    public MatchArchive(GameService gameService, @Value("${archive.dir:data/archive}") Path directory) throws IOException {
+        this.listed = new Postings();
+        this.byGame = new HashMap<>();
+        this.byOwner = new HashMap<>();
+        this.offsets = new long[1024];
+        this.endedAt = new long[1024];
+        this.logger = LoggerFactory.getLogger(MatchArchive.class);
+
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(directory.resolve("matches.log"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.load();
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "match-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        gameService.addListener(this);
+    }
+
+    @Override
+    public void onEnded(Game game, Game.WinState state, Player winner) {
+        short[] history = game.history();
+        if(history == null || history.length == 0) return;
+
+        String xSymbol = null, oSymbol = null;
+        for(Player player : game.playersList()) {
+            if(player.value() == 1) xSymbol = player.symbol();
+            else if(player.value() == -1) oSymbol = player.symbol();
+        }
+
+        // Encoded on the game's mailbox, written on the archive thread so a slow disk never holds up play
+        long ownerHash = ownerHash(game.owner());
+        ByteBuffer frame = encode(game, ownerHash, state, winner == null ? 0 : winner.value(), xSymbol, oSymbol, history);
+        this.writer.execute(() -> this.append(frame, game.uuid(), game.visibility(), ownerHash));
+    }
+
+    public MatchRecord match(long id) throws IOException {
+        long offset;
+        synchronized(this) {
+            if(id < 0 || id >= this.count) return null;
+            offset = this.offsets[(int) id];
+        }
+
+        return this.read((int) id, offset);
+    }
+
+    /**
+     * Newest first. {@code cursor} is the id of the last match on the previous page; {@code before} limits
+     * the page to matches that ended before that epoch millisecond. Without a game or owner only public
+     * matches are listed, and private matches are only ever listed for their owner.
+     */
+    public MatchPage page(Long cursor, Long before, UUID gameId, String owner, int limit) throws IOException {
+        int[] ids;
+        long[] offsets;
+        synchronized(this) {
+            int bound = cursor == null ? this.count : (int) Math.max(0, Math.min(cursor, this.count));
+            if(before != null) bound = Math.min(bound, this.firstEndedAt(before));
+
+            Postings postings = owner != null ? this.byOwner.get(ownerHash(owner)) : gameId != null ? this.byGame.get(gameId) : this.listed;
+            ids = postings == null ? new int[0] : postings.below(bound, limit + 1);
+
+            offsets = new long[ids.length];
+            for(int i = 0; i < ids.length; i++) offsets[i] = this.offsets[ids[i]];
+        }
+
+        int size = Math.min(ids.length, limit);
+        List<MatchRecord> matches = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) matches.add(this.read(ids[i], offsets[i]));
+
+        return new MatchPage(matches, ids.length > limit ? Integer.toString(ids[limit - 1]) : null);
+    }
+
+    public boolean visibleTo(MatchRecord match, String token) {
+        if(match.visibility() != Game.Visibility.PRIVATE) return true;
+
+        return token != null && ownerHash(token) == match.ownerHash();
+    }
+
+    public synchronized int matchCount() {
+        return this.count;
+    }
+
+    public synchronized long archiveBytes() {
+        return this.size;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        this.writer.shutdown();
+        try {
+            if(!this.writer.awaitTermination(5, TimeUnit.SECONDS)) this.logger.warn("Match archive writer did not drain in time");
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.channel.force(false);
+        this.channel.close();
+    }
+
+    private void append(ByteBuffer frame, UUID gameId, Game.Visibility visibility, long ownerHash) {
+        // Stamped here rather than on the mailbox, so end times follow append order and stay searchable
+        long endedAt = Math.max(System.currentTimeMillis(), this.lastEndedAt);
+        frame.putLong(HEADER + 16, endedAt);
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), HEADER, frame.limit() - HEADER);
+        frame.putInt(4, (int) crc.getValue());
+
+        try {
+            long offset = this.size;
+            int length = frame.remaining();
+            while(frame.hasRemaining()) this.channel.write(frame, offset + frame.position());
+
+            synchronized(this) {
+                this.size += length;
+                this.index(offset, endedAt, gameId, visibility, ownerHash);
+            }
+        } catch(IOException e) {
+            this.logger.error("Failed to archive match of game {}", gameId, e);
+        }
+    }
+
+    private void load() throws IOException {
+        // Read through a window rather than mapping the file, so offsets stay longs however large the log grows
+        long fileSize = this.channel.size(), offset = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(LOAD_CHUNK).flip();
+        CRC32C crc = new CRC32C();
+        this.channel.position(0);
+
+        while(true) {
+            buffer = this.fill(buffer, HEADER);
+            if(buffer.remaining() < HEADER) break;
+
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + 4);
+            if(length < 1 || length > fileSize - offset - HEADER) break;
+
+            buffer = this.fill(buffer, HEADER + length);
+            if(buffer.remaining() < HEADER + length) break;
+
+            ByteBuffer body = buffer.slice(buffer.position() + HEADER, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if((int) crc.getValue() != checksum) break;
+
+            UUID gameId = new UUID(body.getLong(), body.getLong());
+            long endedAt = body.getLong();
+            long ownerHash = body.getLong();
+            this.index(offset, endedAt, gameId, Game.Visibility.values()[body.get()], ownerHash);
+
+            buffer.position(buffer.position() + HEADER + length);
+            offset += HEADER + length;
+        }
+
+        this.size = offset;
+        if(this.size < fileSize) {
+            this.logger.warn("Truncating {} bytes of torn match archive tail", fileSize - this.size);
+            this.channel.truncate(this.size);
+        }
+    }
+
+    /**
+     * Tops the window up from the channel until it holds at least {@code needed} bytes or the file ends,
+     * growing it for records larger than the window.
+     */
+    private ByteBuffer fill(ByteBuffer buffer, int needed) throws IOException {
+        if(buffer.remaining() >= needed) return buffer;
+
+        if(buffer.capacity() < needed) buffer = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2)).put(buffer);
+        else buffer.compact();
+
+        while(buffer.hasRemaining()) {
+            if(this.channel.read(buffer) < 0) break;
+        }
+
+        return buffer.flip();
+    }
+
+    private void index(long offset, long endedAt, UUID gameId, Game.Visibility visibility, long ownerHash) {
+        if(this.count == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.count * 2);
+            this.endedAt = Arrays.copyOf(this.endedAt, this.count * 2);
+        }
+
+        int id = this.count++;
+        this.offsets[id] = offset;
+        this.endedAt[id] = endedAt;
+        this.lastEndedAt = Math.max(this.lastEndedAt, endedAt);
+
+        if(visibility == Game.Visibility.PUBLIC) this.listed.add(id);
+        if(visibility != Game.Visibility.PRIVATE) this.byGame.computeIfAbsent(gameId, key -> new Postings()).add(id);
+        this.byOwner.computeIfAbsent(ownerHash, key -> new Postings()).add(id);
+    }
+
+    private int firstEndedAt(long before) {
+        // End times only move forward, so the time index is just a search over append order
+        int low = 0, high = this.count;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(this.endedAt[mid] < before) low = mid + 1;
+            else high = mid;
+        }
+
+        return low;
+    }
+
+    private MatchRecord read(int id, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(this.channel, header, offset);
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(this.channel, body, offset + HEADER);
+        body.flip();
+
+        UUID gameId = new UUID(body.getLong(), body.getLong());
+        long endedAt = body.getLong();
+        long ownerHash = body.getLong();
+        Game.Visibility visibility = Game.Visibility.values()[body.get()];
+        Game.WinState state = Game.WinState.values()[body.get()];
+        int winner = body.get();
+        int boardSize = body.get() & 0xFF, winLength = body.get() & 0xFF;
+        String name = readString(body), xSymbol = readString(body), oSymbol = readString(body);
+
+        short[] moves;
+        if(body.get() == PACKED) {
+            moves = Board.unpack(body.getLong());
+        } else {
+            moves = new short[body.getShort() & 0xFFFF];
+            for(int i = 0; i < moves.length; i++) moves[i] = body.getShort();
+        }
+
+        return new MatchRecord(id, gameId, name, visibility, ownerHash, boardSize, winLength, endedAt, state, winner, xSymbol, oSymbol, moves);
+    }
+
+    private static ByteBuffer encode(Game game, long ownerHash, Game.WinState state, int winner, String xSymbol, String oSymbol, short[] history) {
+        byte[] name = bytes(game.name()), x = bytes(xSymbol), o = bytes(oSymbol);
+        boolean packed = Board.packable(history, game.boardSize());
+
+        int length = 16 + 8 + 8 + 5 + stringLength(name) + stringLength(x) + stringLength(o) + 1 + (packed ? 8 : 2 + history.length * 2);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + length);
+        frame.putInt(length).putInt(0);
+        frame.putLong(game.uuid().getMostSignificantBits()).putLong(game.uuid().getLeastSignificantBits());
+        frame.putLong(0).putLong(ownerHash);
+        frame.put((byte) game.visibility().ordinal()).put((byte) state.ordinal()).put((byte) winner);
+        frame.put((byte) game.boardSize()).put((byte) game.winLength());
+        putString(frame, name);
+        putString(frame, x);
+        putString(frame, o);
+
+        if(packed) {
+            frame.put(PACKED).putLong(Board.pack(history));
+        } else {
+            frame.put(MOVES).putShort((short) history.length);
+            for(short move : history) frame.putShort(move);
+        }
+
+        return frame.flip();
+    }
+
+    /**
+     * Owners are identified by their token, which is a credential, so only a truncated digest is stored.
+     */
+    private static long ownerHash(String owner) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(owner.getBytes(StandardCharsets.UTF_8))).getLong();
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringLength(byte[] value) {
+        return 2 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if(value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if(length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of match archive");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package api.indy.service;
+
+import api.indy.model.game.Game;
+import api.indy.util.Mailbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Pairs waiting players into new games. Players are striped by board variant, and each stripe is a FIFO
+ * drained on its own {@link Mailbox}, so pairing needs no locks and a busy variant never delays another.
+ * Whoever has waited longest in a stripe is paired with the next arrival.
+ */
+@Service
+public class Matchmaker {
+    public interface Listener {
+        void matched(Game game, boolean owner);
+    }
+
+    public record Variant(int boardSize, int winLength) {}
+
+    public static class Ticket {
+        private final String token;
+        private final Variant variant;
+        private final String startingPlayer;
+        private final BooleanSupplier present;
+        private final Listener listener;
+        private final Stripe stripe;
+        private final long enqueuedAt;
+        private boolean done;
+
+        private Ticket(String token, Variant variant, String startingPlayer, BooleanSupplier present, Listener listener, Stripe stripe) {
+            this.token = token;
+            this.variant = variant;
+            this.startingPlayer = startingPlayer;
+            this.present = present;
+            this.listener = listener;
+            this.stripe = stripe;
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+
+    private static class Stripe {
+        private final Mailbox mailbox;
+        private final ArrayDeque<Ticket> waiting;
+
+        private Stripe(Mailbox mailbox) {
+            this.mailbox = mailbox;
+            this.waiting = new ArrayDeque<>();
+        }
+    }
+
+    private final GameService gameService;
+    private final int maxWaiting;
+    private final ExecutorService executor;
+    private final Map<Variant, Stripe> stripes;
+    private final Set<String> queued;
+    private final AtomicInteger waiting;
+    private final LongAdder matches;
+    private final Timer waitTimer;
+    private final Logger logger;
+
+    public Matchmaker(GameService gameService, @Value("${matchmaking.maxWaiting:20000}") int maxWaiting,
+                      @Value("${matchmaking.threads:2}") int threads, MeterRegistry registry) {
+        this.gameService = gameService;
+        this.maxWaiting = maxWaiting;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "matchmaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.stripes = new ConcurrentHashMap<>();
+        this.queued = ConcurrentHashMap.newKeySet();
+        this.waiting = new AtomicInteger();
+        this.matches = new LongAdder();
+        this.waitTimer = Timer.builder("matchmaking.wait")
+                .description("Time a matched player spent in the queue")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+        this.logger = LoggerFactory.getLogger(Matchmaker.class);
+    }
+
+    /**
+     * Queues a player, or returns null if the queue is full or the token is already waiting. {@code present}
+     * is checked right before pairing, so a player who left before their cancel ran is never matched. The
+     * listener runs on a matchmaker thread.
+     */
+    public Ticket enqueue(String token, Variant variant, String startingPlayer, BooleanSupplier present, Listener listener) {
+        if(!this.queued.add(token)) return null;
+        if(this.waiting.incrementAndGet() > this.maxWaiting) {
+            this.waiting.decrementAndGet();
+            this.queued.remove(token);
+            return null;
+        }
+
+        Stripe stripe = this.stripes.computeIfAbsent(variant, key -> new Stripe(new Mailbox(this.executor)));
+        Ticket ticket = new Ticket(token, variant, startingPlayer, present, listener, stripe);
+        stripe.mailbox.submit(() -> this.pair(stripe, ticket));
+
+        return ticket;
+    }
+
+    /**
+     * Withdraws a ticket unless it has already been matched. Tickets only change state on their stripe's
+     * mailbox; a cancelled one leaves the stripe there too, as its place stops counting against the cap.
+     */
+    public void cancel(Ticket ticket) {
+        ticket.stripe.mailbox.submit(() -> {
+            if(ticket.done) return;
+
+            ticket.done = true;
+            ticket.stripe.waiting.remove(ticket);
+            this.release(ticket);
+        });
+    }
+
+    public int waiting() {
+        return this.waiting.get();
+    }
+
+    public long matches() {
+        return this.matches.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void pair(Stripe stripe, Ticket ticket) {
+        if(this.departed(ticket)) return;
+
+        Ticket head;
+        while((head = stripe.waiting.peek()) != null && this.departed(head)) stripe.waiting.poll();
+
+        if(head == null) {
+            stripe.waiting.add(ticket);
+            return;
+        }
+        stripe.waiting.poll();
+        head.done = true;
+        ticket.done = true;
+
+        String startingPlayer = head.startingPlayer.equalsIgnoreCase("random") ? ticket.startingPlayer : head.startingPlayer;
+        Game game = this.gameService.createGame(head.token, "Quick Match", startingPlayer, Game.Visibility.UNLISTED.name(),
+                ticket.variant.boardSize(), ticket.variant.winLength());
+
+        this.record(head);
+        this.record(ticket);
+        this.matches.increment();
+
+        this.notify(head, game, true);
+        this.notify(ticket, game, false);
+    }
+
+    /**
+     * Whether a ticket is spent, withdrawing it first if its player has gone without cancelling yet.
+     */
+    private boolean departed(Ticket ticket) {
+        if(ticket.done) return true;
+        if(ticket.present.getAsBoolean()) return false;
+
+        ticket.done = true;
+        this.release(ticket);
+        return true;
+    }
+
+    private void record(Ticket ticket) {
+        this.waitTimer.record(System.nanoTime() - ticket.enqueuedAt, TimeUnit.NANOSECONDS);
+        this.release(ticket);
+    }
+
+    private void release(Ticket ticket) {
+        this.waiting.decrementAndGet();
+        this.queued.remove(ticket.token);
+    }
+
+    private void notify(Ticket ticket, Game game, boolean owner) {
+        try {
+            ticket.listener.matched(game, owner);
+        } catch(RuntimeException e) {
+            this.logger.error("Failed to notify matched player of game {}", game.uuid(), e);
+        }
+    }
+}
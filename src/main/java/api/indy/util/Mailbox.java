@@ -0,0 +1,78 @@
+package api.indy.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs submitted tasks one at a time and in submission order on a shared executor. At most one drain is
+ * scheduled at any moment, so tasks never overlap and each sees the effects of the ones before it, while
+ * many mailboxes share the executor's threads. A drain yields after {@value #BATCH} tasks to stay fair.
+ */
+public class Mailbox {
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private static final int BATCH = 64;
+    private static final Logger logger = LoggerFactory.getLogger(Mailbox.class);
+
+    private final Executor executor;
+    private final Queue<Task> tasks;
+    private final AtomicInteger depth;
+    private final AtomicBoolean scheduled;
+
+    public Mailbox(Executor executor) {
+        this.executor = executor;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+        this.scheduled = new AtomicBoolean();
+    }
+
+    public void submit(Task task) {
+        this.tasks.add(task);
+        this.depth.incrementAndGet();
+        this.schedule();
+    }
+
+    public int depth() {
+        return this.depth.get();
+    }
+
+    private void schedule() {
+        if(!this.scheduled.compareAndSet(false, true)) return;
+
+        try {
+            this.executor.execute(this::drain);
+        } catch(RejectedExecutionException e) {
+            this.scheduled.set(false);
+            throw e;
+        }
+    }
+
+    private void drain() {
+        try {
+            for(int i = 0; i < BATCH; i++) {
+                Task task = this.tasks.poll();
+                if(task == null) break;
+                this.depth.decrementAndGet();
+
+                try {
+                    task.run();
+                } catch(Exception e) {
+                    logger.error("Mailbox task failed", e);
+                }
+            }
+        } finally {
+            this.scheduled.set(false);
+        }
+
+        if(!this.tasks.isEmpty()) this.schedule();
+    }
+}
@@ -0,0 +1,80 @@
+package api.indy.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: a deadline is hashed into one of {@code size} buckets by its tick, and each tick only
+ * visits its own bucket, so scheduling is O(1) and a tick costs only the entries that hash to it. Deadlines
+ * further out than one turn of the wheel stay in their bucket until the turn they belong to comes around.
+ * Not thread-safe; it is meant to be owned by the single thread that calls {@link #advance}.
+ */
+public class TimingWheel<T> {
+    private static class Entry<T> {
+        private final T value;
+        private final long tick;
+
+        private Entry(T value, long tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+    }
+
+    private final long tickMillis;
+    private final long origin;
+    private final List<Entry<T>>[] buckets;
+    private final int mask;
+    private long tick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long now) {
+        if(tickMillis < 1) throw new IllegalArgumentException("Tick must be at least 1 ms");
+        if(wheelSize < 1 || Integer.bitCount(wheelSize) != 1) throw new IllegalArgumentException("Wheel size must be a power of two");
+
+        this.tickMillis = tickMillis;
+        this.origin = now;
+        this.buckets = new List[wheelSize];
+        for(int i = 0; i < wheelSize; i++) this.buckets[i] = new ArrayList<>();
+        this.mask = wheelSize - 1;
+    }
+
+    /**
+     * Schedules {@code value} to expire on the first tick at or after {@code deadline}; past deadlines expire
+     * on the next tick.
+     */
+    public void schedule(T value, long deadline) {
+        long tick = Math.max(this.tick, (deadline - this.origin + this.tickMillis - 1) / this.tickMillis);
+        this.buckets[(int) (tick & this.mask)].add(new Entry<>(value, tick));
+        this.size++;
+    }
+
+    /**
+     * Runs every tick up to {@code now}, handing each expired value to {@code expired}. Values scheduled from
+     * inside {@code expired} land on a later tick.
+     */
+    public void advance(long now, Consumer<T> expired) {
+        long target = (now - this.origin) / this.tickMillis;
+
+        while(this.tick <= target) {
+            List<Entry<T>> bucket = this.buckets[(int) (this.tick & this.mask)];
+            List<T> due = new ArrayList<>();
+
+            int kept = 0;
+            for(Entry<T> entry : bucket) {
+                if(entry.tick <= this.tick) due.add(entry.value);
+                else bucket.set(kept++, entry);
+            }
+            bucket.subList(kept, bucket.size()).clear();
+            this.size -= due.size();
+
+            this.tick++;
+            for(T value : due) expired.accept(value);
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+}
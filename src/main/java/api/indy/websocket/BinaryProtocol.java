@@ -0,0 +1,77 @@
+package api.indy.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@value #NAME} subprotocol. Every frame starts with a one-byte opcode; multi-byte fields are big
+ * endian. Server events carry the game's event sequence number so clients can detect gaps. Lifecycle
+ * events (join, ready, symbols, start, leave) keep travelling as JSON text frames on the same socket.
+ *
+ * <pre>
+ * client -> server
+ *   AUTH         0x01 token:utf8
+ *   READY        0x02 ready:u8
+ *   MOVE         0x03 cell:u16
+ * server -> client
+ *   PLAYER_MOVE  0x81 seq:u32 cell:u16 value:i8
+ *   PLAYER_TURN  0x82 seq:u32 value:i8
+ *   GAME_TURN    0x83 seq:u32
+ *   GAME_END     0x84 seq:u32 state:u8 winner:i8
+ *   ERROR        0x85 code:u8
+ * </pre>
+ *
+ * A cell is {@code row * boardSize + col}; a value is 1 for X and -1 for O; a state is 1 win, 2 draw or
+ * 3 loss. GAME_TURN goes to the player to move and shares its sequence number with that turn's
+ * PLAYER_TURN, as WIN and LOSS share theirs, so every player sees every sequence number. An ERROR code is
+ * 1 malformed frame, 2 unknown opcode, 3 cell off the board or 4 move not allowed (not the sender's turn,
+ * the cell is taken or the game is not running).
+ */
+public class BinaryProtocol {
+    public static final String NAME = "ttt.binary.v1";
+
+    public static final byte AUTH = 0x01;
+    public static final byte READY = 0x02;
+    public static final byte MOVE = 0x03;
+
+    public static final byte PLAYER_MOVE = (byte) 0x81;
+    public static final byte PLAYER_TURN = (byte) 0x82;
+    public static final byte GAME_TURN = (byte) 0x83;
+    public static final byte GAME_END = (byte) 0x84;
+    public static final byte ERROR = (byte) 0x85;
+
+    public static final byte MALFORMED = 1;
+    public static final byte UNKNOWN_OPCODE = 2;
+    public static final byte OUT_OF_BOUNDS = 3;
+    public static final byte NOT_ALLOWED = 4;
+
+    public static boolean accepted(WebSocketSession session) {
+        return NAME.equals(session.getAcceptedProtocol());
+    }
+
+    public static BinaryMessage playerMove(int sequence, int cell, int value) {
+        return frame(ByteBuffer.allocate(8).put(PLAYER_MOVE).putInt(sequence).putShort((short) cell).put((byte) value));
+    }
+
+    public static BinaryMessage playerTurn(int sequence, int value) {
+        return frame(ByteBuffer.allocate(6).put(PLAYER_TURN).putInt(sequence).put((byte) value));
+    }
+
+    public static BinaryMessage gameTurn(int sequence) {
+        return frame(ByteBuffer.allocate(5).put(GAME_TURN).putInt(sequence));
+    }
+
+    public static BinaryMessage gameEnd(int sequence, int state, int winner) {
+        return frame(ByteBuffer.allocate(7).put(GAME_END).putInt(sequence).put((byte) state).put((byte) winner));
+    }
+
+    public static BinaryMessage error(byte code) {
+        return new BinaryMessage(new byte[]{ERROR, code});
+    }
+
+    private static BinaryMessage frame(ByteBuffer buffer) {
+        return new BinaryMessage(buffer.array());
+    }
+}
@@ -5,49 +5,83 @@ import api.indy.model.game.Player;
 import api.indy.service.AuthService;
 import api.indy.service.GameService;
 import api.indy.util.Util;
+import api.indy.websocket.command.Command;
+import api.indy.websocket.command.CommandDecoder;
+import api.indy.websocket.command.CommandException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Component
-public class GameSocketHandler extends TextWebSocketHandler {
+public class GameSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
+    private interface CommandHandler {
+        void handle(Game game, WebSocketSession session, Command command) throws IOException;
+    }
+
+    private static final Pattern JOIN_PATH = Pattern.compile("/game/join/([a-z\\d-]+)");
+
     private final Map<WebSocketSession, UUID> clients;
     private final AuthService authService;
     private final GameService gameService;
+    private final OutboundSessions outboundSessions;
     private final ObjectMapper serializer;
+    private final CommandDecoder decoder;
+    private final Map<Command.Type, CommandHandler> handlers;
+    private final Timer moveTimer;
     private final Logger logger;
 
     @Autowired
-    public GameSocketHandler(AuthService authService, GameService gameService) {
+    public GameSocketHandler(AuthService authService, GameService gameService, OutboundSessions outboundSessions, MeterRegistry registry) {
         this.clients = new ConcurrentHashMap<>();
         this.authService = authService;
         this.gameService = gameService;
+        this.outboundSessions = outboundSessions;
         this.serializer = new ObjectMapper();
+        this.decoder = new CommandDecoder();
+        this.handlers = new EnumMap<>(Command.Type.class);
+        this.handlers.put(Command.Type.UPDATE_READINESS, (game, session, command) -> this.ready(game, session, ((Command.UpdateReadiness) command).ready()));
+        this.handlers.put(Command.Type.UPDATE_SYMBOLS, (game, session, command) -> this.updateSymbols(game, session, (Command.UpdateSymbols) command));
+        this.handlers.put(Command.Type.MOVE, (game, session, command) -> this.move(game, session, ((Command.Move) command).row(), ((Command.Move) command).col()));
+        this.moveTimer = Timer.builder("game.move")
+                .description("Time to apply a move and send it to the game's players and spectators")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(registry);
         this.logger = LoggerFactory.getLogger(GameSocketHandler.class);
     }
 
     @Override
-    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        final Pattern pattern = Pattern.compile("/game/join/([a-z\\d-]+)");
+    public void afterConnectionEstablished(WebSocketSession connection) throws Exception {
+        final WebSocketSession session = this.outboundSessions.wrap(connection);
         final String path = session.getAttributes().get("path").toString();
         final String query = session.getAttributes().get("query") == null ? "" : session.getAttributes().get("query").toString();
 
-        Matcher matcher = pattern.matcher(path);
+        Matcher matcher = JOIN_PATH.matcher(path);
         if(!matcher.find()) {
             session.close(WebSocketStatus.BAD_REQUEST);
             return;
@@ -62,9 +96,14 @@ public class GameSocketHandler extends TextWebSocketHandler {
         }
 
         if(game.visibility().equals(Game.Visibility.PRIVATE)) {
-            final String password = Util.getParam(query, "pass");
+            final String ticket = Util.getParam(query, "ticket");
 
-            if(password == null || !authService.verifyPassword(password, game.password())) {
+            try {
+                if(ticket == null || !authService.verifyJoinTicket(ticket, game.uuid())) {
+                    session.close(WebSocketStatus.FORBIDDEN);
+                    return;
+                }
+            } catch(IllegalArgumentException e) {
                 session.close(WebSocketStatus.FORBIDDEN);
                 return;
             }
@@ -75,7 +114,8 @@ public class GameSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        if(game.started()) {
+        // A started game only takes back players of a restored game, checked against their seat's token on auth
+        if(game.started() && game.vacantSeats() == 0) {
             session.close(WebSocketStatus.FORBIDDEN);
             return;
         }
@@ -84,150 +124,236 @@ public class GameSocketHandler extends TextWebSocketHandler {
     }
 
     @Override
-    public void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
-        Map<String, Object> data = serializer.readValue(message.getPayload(), Map.class);
-        String type = data.get("type").toString();
+    public void handleTextMessage(WebSocketSession connection, TextMessage message) throws IOException {
+        final WebSocketSession session = this.outboundSessions.get(connection);
+
+        Command command;
+        try {
+            command = this.decoder.decode(message.getPayload());
+        } catch(CommandException e) {
+            this.sendErrorMessage(session, e);
+            return;
+        }
 
-        if(type.equalsIgnoreCase("auth")) {
-            try {
-                String token = data.get("token").toString();
-                if(!authService.verifyToken(UUID.fromString(token))) {
-                    session.close(WebSocketStatus.UNAUTHORIZED);
-                    return;
-                }
+        if(command instanceof Command.Auth auth) {
+            this.authenticate(session, auth.token());
+            return;
+        }
+
+        Game game = this.joinedGame(session);
+        if(game == null) return;
+
+        this.dispatch(game, session, command);
+    }
+
+    @Override
+    public void handleBinaryMessage(WebSocketSession connection, BinaryMessage message) throws IOException {
+        final WebSocketSession session = this.outboundSessions.get(connection);
+        ByteBuffer payload = message.getPayload();
+        if(!payload.hasRemaining()) {
+            session.sendMessage(BinaryProtocol.error(BinaryProtocol.MALFORMED));
+            return;
+        }
+
+        byte opcode = payload.get();
+        if(opcode == BinaryProtocol.AUTH) {
+            this.authenticate(session, StandardCharsets.UTF_8.decode(payload).toString());
+            return;
+        }
 
-                session.getAttributes().put("token", token);
+        Game game = this.joinedGame(session);
+        if(game == null) return;
 
-                UUID gameId = UUID.fromString(session.getAttributes().get("gameId").toString());
-                Game game = this.gameService.getGame(gameId);
-                if(game == null) {
-                    session.close(WebSocketStatus.NOT_FOUND);
+        switch(opcode) {
+            case BinaryProtocol.READY -> {
+                if(payload.remaining() != 1) {
+                    session.sendMessage(BinaryProtocol.error(BinaryProtocol.MALFORMED));
                     return;
                 }
-
-                if(!game.join(session)) {
-                    session.close(WebSocketStatus.INTERNAL_SERVER_ERROR);
+                this.dispatch(game, session, new Command.UpdateReadiness(payload.get() != 0));
+            } case BinaryProtocol.MOVE -> {
+                if(payload.remaining() != 2) {
+                    session.sendMessage(BinaryProtocol.error(BinaryProtocol.MALFORMED));
+                    return;
+                }
+                int cell = payload.getShort() & 0xFFFF;
+                if(cell >= game.boardSize() * game.boardSize()) {
+                    session.sendMessage(BinaryProtocol.error(BinaryProtocol.OUT_OF_BOUNDS));
                     return;
                 }
 
-                session.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                        "type", "on_join",
-                        "game", game,
-                        "is_owner", game.owner().equals(token)
-                ))));
-
-                for(WebSocketSession player : game.players().keySet()) {
-                    if(player == session) continue;
+                this.dispatch(game, session, new Command.Move(cell / game.boardSize(), cell % game.boardSize()));
+            } default -> {
+                session.sendMessage(BinaryProtocol.error(BinaryProtocol.UNKNOWN_OPCODE));
+            }
+        }
+    }
 
-                    player.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                            "type", "player_join",
-                            "player", game.players().get(session)
-                    ))));
-                }
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BinaryProtocol.NAME);
+    }
 
-                this.clients.put(session, gameId);
-                return;
-            } catch(IllegalArgumentException e) {
+    private void authenticate(WebSocketSession session, String token) throws IOException {
+        try {
+            if(!authService.verifyToken(token)) {
                 session.close(WebSocketStatus.UNAUTHORIZED);
                 return;
-            } catch(NullPointerException e) {
-                session.close(WebSocketStatus.BAD_REQUEST);
-                return;
             }
+        } catch(IllegalArgumentException e) {
+            session.close(WebSocketStatus.UNAUTHORIZED);
+            return;
         }
 
-        if(session.getAttributes().get("token") == null) {
-            session.close(WebSocketStatus.UNAUTHORIZED);
+        Object gameAttribute = session.getAttributes().get("gameId");
+        if(gameAttribute == null) {
+            session.close(WebSocketStatus.BAD_REQUEST);
             return;
         }
 
-        UUID gameId = this.clients.get(session);
+        session.getAttributes().put("token", token);
+
+        UUID gameId = UUID.fromString(gameAttribute.toString());
         Game game = this.gameService.getGame(gameId);
+        if(game == null) {
+            session.close(WebSocketStatus.NOT_FOUND);
+            return;
+        }
 
-        switch(type.toLowerCase()) {
-            case "update_readiness" -> {
-                if(!(data.get("ready") instanceof Boolean)) {
-                    this.sendErrorMessage(session, "Expected boolean value for 'ready' (Received %s instead).".formatted(data.get("ready").getClass().getSimpleName()), "console");
-                    return;
-                }
-                boolean player_ready = (Boolean) data.get("ready");
-
-                game.playerReady(session, player_ready);
-                for(WebSocketSession player : game.players().keySet()) {
-                    player.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                        "type", "player_ready",
-                        "player_id", game.players().get(session).id(),
-                        "ready", player_ready
-                    ))));
-                }
+        // Mapped before the join runs so later messages from this session queue up behind it
+        this.clients.put(session, gameId);
+        game.submit(() -> {
+            if(!game.join(session)) {
+                this.clients.remove(session);
+                session.close(game.started() ? WebSocketStatus.FORBIDDEN : WebSocketStatus.INTERNAL_SERVER_ERROR);
+                return;
+            }
 
-                if(game.playerCount() == 2 && game.allPlayersReady()) game.start();
-            } case "update_symbols" -> {
-                if(!Objects.equals(game.owner(), session.getAttributes().get("token").toString())) {
-                    this.sendErrorMessage(session, "notAllowed", "user");
-                    return;
-                }
+            session.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
+                    "type", "on_join",
+                    "game", game,
+                    "is_owner", game.owner().equals(token)
+            ))));
 
-                List<Map<String, Object>> entries = (List<Map<String, Object>>) data.get("symbols");
-                for(Map<String, Object> entry : entries) {
-                    int player_id = (Integer) entry.get("player_id");
-                    String symbol = (String) entry.get("symbol");
-
-                    Player player = game.getPlayerById(player_id);
-                    if(player == null) continue;
-                    player.setSymbol(symbol);
-
-                    for(WebSocketSession playerSession : game.players().keySet()) {
-                        if(playerSession == session) continue;
-                        playerSession.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
-                            "type", "player_symbol",
-                            "player_id", player_id,
-                            "symbol", symbol
-                        ))));
-                    }
-                }
-            } case "move" -> {
-                if(!(data.get("row") instanceof Integer) || !(data.get("col") instanceof Integer)) {
-                    this.sendErrorMessage(session, "Expected integer values for 'row' and 'col' (Received %s and %s instead)."
-                            .formatted(data.get("row").getClass().getSimpleName(), data.get("col").getClass().getSimpleName()), "console");
-                    return;
-                }
-                int row = (Integer) data.get("row");
-                int col = (Integer) data.get("col");
+            game.broadcast(Map.of(
+                    "type", "player_join",
+                    "player", game.players().get(session)
+            ), session);
 
-                game.move(row, col);
-            } default -> {
-                this.sendErrorMessage(session, "Invalid message type", "console");
-            }
+            if(game.started()) game.resume(session);
+        });
+    }
+
+    private Game joinedGame(WebSocketSession session) throws IOException {
+        if(session.getAttributes().get("token") == null) {
+            session.close(WebSocketStatus.UNAUTHORIZED);
+            return null;
         }
+
+        Game game = this.gameService.getGame(this.clients.get(session));
+        if(game == null) session.close(WebSocketStatus.NOT_FOUND);
+
+        return game;
+    }
+
+    private void ready(Game game, WebSocketSession session, boolean ready) throws IOException {
+        game.playerReady(session, ready);
+        game.broadcast(Map.of(
+            "type", "player_ready",
+            "player_id", game.player(session).id(),
+            "ready", ready
+        ));
+
+        if(game.playerCount() == 2 && game.allPlayersReady()) game.start();
+    }
+
+    private void move(Game game, WebSocketSession session, int row, int col) throws IOException {
+        if(row < 0 || row >= game.boardSize() || col < 0 || col >= game.boardSize()) {
+            if(BinaryProtocol.accepted(session)) session.sendMessage(BinaryProtocol.error(BinaryProtocol.OUT_OF_BOUNDS));
+            else this.sendErrorMessage(session, "Move is outside the %dx%d board.".formatted(game.boardSize(), game.boardSize()), "console");
+            return;
+        }
+        if(!game.canMove(session, row, col)) {
+            if(BinaryProtocol.accepted(session)) session.sendMessage(BinaryProtocol.error(BinaryProtocol.NOT_ALLOWED));
+            else this.sendErrorMessage(session, "notAllowed", "user");
+            return;
+        }
+
+        // A pre-registered timer and two clock reads, so measuring adds no allocation to the move path
+        long start = System.nanoTime();
+        try {
+            game.move(row, col);
+        } finally {
+            this.moveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void updateSymbols(Game game, WebSocketSession session, Command.UpdateSymbols command) throws IOException {
+        if(!Objects.equals(game.owner(), session.getAttributes().get("token").toString())) {
+            this.sendErrorMessage(session, "notAllowed", "user");
+            return;
+        }
+
+        for(Command.SymbolEntry entry : command.symbols()) {
+            Player player = game.getPlayerById(entry.playerId());
+            if(player == null) continue;
+            player.setSymbol(entry.symbol());
+
+            game.broadcast(Map.of(
+                "type", "player_symbol",
+                "player_id", entry.playerId(),
+                "symbol", entry.symbol()
+            ), session);
+        }
+    }
+
+    private void dispatch(Game game, WebSocketSession session, Command command) {
+        CommandHandler handler = this.handlers.get(command.type());
+        game.submit(() -> {
+            if(game.player(session) != null) handler.handle(game, session, command);
+        });
     }
 
     @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws IOException {
+    public void afterConnectionClosed(WebSocketSession connection, CloseStatus status) throws IOException {
+        final WebSocketSession session = this.outboundSessions.get(connection);
+        this.outboundSessions.release(connection, status);
         logger.info("Connection closed {} {}", status.getCode(), status.getReason() == null ? "" : status.getReason().toUpperCase().replace(" ", "_"));
 
-        UUID gameId = this.clients.get(session);
+        UUID gameId = this.clients.remove(session);
         Game game = this.gameService.getGame(gameId);
         if(game == null) return;
 
-        Player player = game.players().get(session);
-        game.leave(session);
-        this.clients.remove(session);
-
-        if(game.playerCount() == 0) this.gameService.deleteGame(gameId);
-        else if(game.playerCount() == 1 && game.started()) {
-            for(WebSocketSession playerSession : game.players().keySet()) playerSession.close();
-            this.gameService.deleteGame(gameId);
-        } else {
-            for(WebSocketSession playerSession : game.players().keySet()) {
+        game.submit(() -> {
+            Player player = game.players().get(session);
+            if(player == null) return;
+            game.leave(session);
+
+            if(game.playerCount() == 0) {
+                game.closeSpectators();
+                this.gameService.deleteGame(gameId);
+            } else if(game.playerCount() == 1 && game.started()) {
+                for(WebSocketSession playerSession : game.players().keySet()) playerSession.close();
+                game.closeSpectators();
+                this.gameService.deleteGame(gameId);
+            } else {
                 try {
-                    playerSession.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
+                    game.broadcast(Map.of(
                         "type", "player_leave",
                         "player_id", player.id()
-                    ))));
+                    ));
                 } catch (Exception ignored) {}
             }
-        }
+        });
+    }
+
+    private void sendErrorMessage(WebSocketSession session, CommandException error) throws IOException {
+        session.sendMessage(new TextMessage(serializer.writeValueAsString(Map.of(
+            "type", "error",
+            "target", "console",
+            "code", error.code().name().toLowerCase(),
+            "error", error.getMessage()
+        ))));
     }
 
     private void sendErrorMessage(WebSocketSession session, String message, String target) throws IOException {
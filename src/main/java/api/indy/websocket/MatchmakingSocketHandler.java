@@ -0,0 +1,139 @@
+package api.indy.websocket;
+
+import api.indy.model.game.Board;
+import api.indy.model.game.Game;
+import api.indy.service.AuthService;
+import api.indy.service.Matchmaker;
+import api.indy.util.Util;
+import api.indy.websocket.command.Command;
+import api.indy.websocket.command.CommandDecoder;
+import api.indy.websocket.command.CommandException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Quick-match queue. A client connects with its preferred variant, authenticates like a player socket, and
+ * waits; once paired it is sent the game to join and the queue socket is closed.
+ */
+@Component
+public class MatchmakingSocketHandler extends TextWebSocketHandler {
+    private final AuthService authService;
+    private final Matchmaker matchmaker;
+    private final OutboundSessions outboundSessions;
+    private final ObjectMapper serializer;
+    private final CommandDecoder decoder;
+    private final Logger logger;
+
+    @Autowired
+    public MatchmakingSocketHandler(AuthService authService, Matchmaker matchmaker, OutboundSessions outboundSessions) {
+        this.authService = authService;
+        this.matchmaker = matchmaker;
+        this.outboundSessions = outboundSessions;
+        this.serializer = new ObjectMapper();
+        this.decoder = new CommandDecoder();
+        this.logger = LoggerFactory.getLogger(MatchmakingSocketHandler.class);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession connection) throws Exception {
+        final WebSocketSession session = this.outboundSessions.wrap(connection);
+        final String query = session.getAttributes().get("query") == null ? "" : session.getAttributes().get("query").toString();
+        Map<String, String> params = Util.getParams(query);
+
+        String startingPlayer = params.getOrDefault("starting_player", "random");
+        if(!startingPlayer.equalsIgnoreCase("X") && !startingPlayer.equalsIgnoreCase("O") && !startingPlayer.equalsIgnoreCase("random")) {
+            session.close(WebSocketStatus.BAD_REQUEST);
+            return;
+        }
+
+        try {
+            int boardSize = params.containsKey("board_size") ? Integer.parseInt(params.get("board_size")) : Board.MIN_SIZE;
+            int winLength = params.containsKey("win_length") ? Integer.parseInt(params.get("win_length")) : Math.min(boardSize, 5);
+            if(boardSize < Board.MIN_SIZE || boardSize > Board.MAX_SIZE || winLength < Board.MIN_SIZE || winLength > boardSize) {
+                session.close(WebSocketStatus.BAD_REQUEST);
+                return;
+            }
+
+            session.getAttributes().put("variant", new Matchmaker.Variant(boardSize, winLength));
+            session.getAttributes().put("startingPlayer", startingPlayer);
+        } catch(NumberFormatException e) {
+            session.close(WebSocketStatus.BAD_REQUEST);
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession connection, TextMessage message) throws IOException {
+        final WebSocketSession session = this.outboundSessions.get(connection);
+
+        Command command;
+        try {
+            command = this.decoder.decode(message.getPayload());
+        } catch(CommandException e) {
+            session.close(WebSocketStatus.BAD_REQUEST);
+            return;
+        }
+
+        if(!(command instanceof Command.Auth auth) || session.getAttributes().containsKey("ticket")) {
+            session.close(WebSocketStatus.BAD_REQUEST);
+            return;
+        }
+
+        try {
+            if(!this.authService.verifyToken(auth.token())) {
+                session.close(WebSocketStatus.UNAUTHORIZED);
+                return;
+            }
+        } catch(IllegalArgumentException e) {
+            session.close(WebSocketStatus.UNAUTHORIZED);
+            return;
+        }
+
+        Matchmaker.Variant variant = (Matchmaker.Variant) session.getAttributes().get("variant");
+        String startingPlayer = session.getAttributes().get("startingPlayer").toString();
+        Matchmaker.Ticket ticket = this.matchmaker.enqueue(auth.token(), variant, startingPlayer, session::isOpen, (game, owner) -> this.matched(session, game, owner));
+        if(ticket == null) {
+            session.close(WebSocketStatus.FORBIDDEN);
+            return;
+        }
+
+        session.getAttributes().put("ticket", ticket);
+        session.sendMessage(new TextMessage(this.serializer.writeValueAsString(Map.of(
+            "type", "queued",
+            "board_size", variant.boardSize(),
+            "win_length", variant.winLength()
+        ))));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession connection, CloseStatus status) {
+        final WebSocketSession session = this.outboundSessions.get(connection);
+        this.outboundSessions.release(connection, status);
+
+        Object ticket = session.getAttributes().get("ticket");
+        if(ticket != null) this.matchmaker.cancel((Matchmaker.Ticket) ticket);
+    }
+
+    private void matched(WebSocketSession session, Game game, boolean owner) {
+        try {
+            session.sendMessage(new TextMessage(this.serializer.writeValueAsString(Map.of(
+                "type", "match_found",
+                "game_id", game.uuid().toString(),
+                "join_code", game.joinCode(),
+                "is_owner", owner
+            ))));
+            session.close(CloseStatus.NORMAL);
+        } catch(IOException e) {
+            this.logger.warn("Failed to hand game {} to a matched player", game.uuid(), e);
+        }
+    }
+}
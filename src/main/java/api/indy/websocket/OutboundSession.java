@@ -0,0 +1,161 @@
+package api.indy.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queues outgoing messages and writes them from a shared sender pool, so game logic never blocks on a
+ * client's socket. A client whose backlog grows past the byte limit, or whose current write has been
+ * stuck longer than the time limit, is closed with {@link WebSocketStatus#SLOW_CONSUMER}.
+ */
+public class OutboundSession extends WebSocketSessionDecorator {
+    private final Executor senders;
+    private final Executor closers;
+    private final OutboundSessions owner;
+    private final Queue<WebSocketMessage<?>> queue;
+    private final AtomicInteger queuedBytes;
+    private final AtomicInteger queuedMessages;
+    private final AtomicBoolean draining;
+    private final AtomicBoolean evicted;
+    private final AtomicBoolean closed;
+    private volatile CloseStatus closing;
+    private volatile long sendStart;
+
+    OutboundSession(WebSocketSession delegate, Executor senders, Executor closers, OutboundSessions owner) {
+        super(delegate);
+        this.senders = senders;
+        this.closers = closers;
+        this.owner = owner;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.queuedBytes = new AtomicInteger();
+        this.queuedMessages = new AtomicInteger();
+        this.draining = new AtomicBoolean();
+        this.evicted = new AtomicBoolean();
+        this.closed = new AtomicBoolean();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if(this.evicted.get() || this.closing != null || !this.isOpen()) return;
+
+        if(this.stalled(System.nanoTime())) {
+            this.evict();
+            return;
+        }
+
+        if(this.queuedBytes.addAndGet(message.getPayloadLength()) > this.owner.bufferLimit()) {
+            this.evict();
+            return;
+        }
+
+        this.queue.add(message);
+        this.queuedMessages.incrementAndGet();
+        this.schedule();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.close(CloseStatus.NORMAL);
+    }
+
+    /**
+     * Closes once everything already queued has been written, so a final notice is not cut off by the close
+     * that follows it. With nothing queued the close happens right away.
+     */
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        this.closing = status;
+        if(this.draining.get() || !this.queue.isEmpty()) {
+            this.schedule();
+            return;
+        }
+
+        this.closeNow();
+    }
+
+    public int queuedBytes() {
+        return this.queuedBytes.get();
+    }
+
+    public int queuedMessages() {
+        return this.queuedMessages.get();
+    }
+
+    boolean stalled(long now) {
+        long start = this.sendStart;
+        return start != 0 && now - start > this.owner.sendTimeLimitNanos();
+    }
+
+    private void schedule() {
+        if(!this.draining.compareAndSet(false, true)) return;
+
+        try {
+            this.senders.execute(this::drain);
+        } catch(RejectedExecutionException e) {
+            this.draining.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            WebSocketMessage<?> message;
+            while(!this.evicted.get() && (message = this.queue.poll()) != null) {
+                this.queuedMessages.decrementAndGet();
+
+                this.sendStart = System.nanoTime();
+                try {
+                    this.getDelegate().sendMessage(message);
+                } finally {
+                    this.sendStart = 0;
+                }
+
+                this.queuedBytes.addAndGet(-message.getPayloadLength());
+            }
+        } catch(IOException | RuntimeException e) {
+            this.evict();
+        } finally {
+            this.draining.set(false);
+        }
+
+        if(this.evicted.get()) return;
+        if(!this.queue.isEmpty()) {
+            this.schedule();
+        } else if(this.closing != null) {
+            try {
+                this.closeNow();
+            } catch(IOException ignored) {}
+        }
+    }
+
+    private void closeNow() throws IOException {
+        if(this.closed.compareAndSet(false, true)) this.getDelegate().close(this.closing);
+    }
+
+    void evict() {
+        if(!this.evicted.compareAndSet(false, true)) return;
+
+        this.queue.clear();
+        this.queuedMessages.set(0);
+        this.queuedBytes.set(0);
+        this.owner.evicted(this);
+
+        // Closing can block on the same stalled socket, so it never runs on the caller's thread or a sender
+        try {
+            this.closers.execute(() -> {
+                try {
+                    this.getDelegate().close(WebSocketStatus.SLOW_CONSUMER);
+                } catch(IOException ignored) {}
+            });
+        } catch(RejectedExecutionException ignored) {}
+    }
+}
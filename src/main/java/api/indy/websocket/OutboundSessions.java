@@ -0,0 +1,150 @@
+package api.indy.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class OutboundSessions {
+    private static final String ATTRIBUTE = "outbound";
+
+    private final Set<OutboundSession> sessions;
+    private final ExecutorService senders;
+    private final ExecutorService closers;
+    private final ScheduledExecutorService watchdog;
+    private final int bufferLimit;
+    private final long sendTimeLimitNanos;
+    private final LongAdder evictions;
+    private final Map<Integer, Counter> closes;
+    private final Counter otherCloses;
+
+    public OutboundSessions(@Value("${ws.send.bufferLimit:512KB}") DataSize bufferLimit, @Value("${ws.send.timeLimit:10s}") Duration sendTimeLimit,
+                            @Value("${ws.send.threads:0}") int threads, MeterRegistry registry) {
+        this.sessions = ConcurrentHashMap.newKeySet();
+        this.senders = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "ws-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Closing a stalled socket can block as long as the write it interrupts, so closes get their own threads
+        this.closers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ws-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bufferLimit = (int) Math.min(bufferLimit.toBytes(), Integer.MAX_VALUE);
+        this.sendTimeLimitNanos = sendTimeLimit.toNanos();
+        this.evictions = new LongAdder();
+        this.closes = new HashMap<>();
+        for(Map.Entry<Integer, String> name : WebSocketStatus.names().entrySet()) this.closes.put(name.getKey(), closeCounter(registry, name.getKey().toString(), name.getValue()));
+        this.otherCloses = closeCounter(registry, "other", "OTHER");
+
+        long period = Math.max(10, sendTimeLimit.toMillis() / 4);
+        this.watchdog.scheduleWithFixedDelay(this::evictStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public OutboundSession wrap(WebSocketSession session) {
+        OutboundSession outbound = new OutboundSession(session, this.senders, this.closers, this);
+        session.getAttributes().put(ATTRIBUTE, outbound);
+        this.sessions.add(outbound);
+
+        return outbound;
+    }
+
+    public OutboundSession get(WebSocketSession session) {
+        return (OutboundSession) session.getAttributes().get(ATTRIBUTE);
+    }
+
+    /**
+     * Forgets a closed session and counts its close code. Every handler calls this from
+     * {@code afterConnectionClosed}.
+     */
+    public void release(WebSocketSession session, CloseStatus status) {
+        OutboundSession outbound = this.get(session);
+        if(outbound != null) this.sessions.remove(outbound);
+
+        this.closes.getOrDefault(status.getCode(), this.otherCloses).increment();
+    }
+
+    public int sessionCount() {
+        return this.sessions.size();
+    }
+
+    public long queuedBytes() {
+        long total = 0;
+        for(OutboundSession session : this.sessions) total += session.queuedBytes();
+
+        return total;
+    }
+
+    public long queuedMessages() {
+        long total = 0;
+        for(OutboundSession session : this.sessions) total += session.queuedMessages();
+
+        return total;
+    }
+
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.watchdog.shutdownNow();
+        this.senders.shutdownNow();
+        this.closers.shutdownNow();
+    }
+
+    int bufferLimit() {
+        return this.bufferLimit;
+    }
+
+    long sendTimeLimitNanos() {
+        return this.sendTimeLimitNanos;
+    }
+
+    /**
+     * A write blocked on a peer that stopped reading pins its sender thread, and with every sender pinned no
+     * other session moves. Closing the stalled session is what makes its write return.
+     */
+    void evictStalled() {
+        long now = System.nanoTime();
+        for(OutboundSession session : this.sessions) {
+            if(session.stalled(now)) session.evict();
+        }
+    }
+
+    void evicted(OutboundSession session) {
+        this.evictions.increment();
+        this.sessions.remove(session);
+    }
+
+    private static Counter closeCounter(MeterRegistry registry, String code, String status) {
+        return Counter.builder("ws.sessions.closed")
+                .description("WebSocket sessions closed, by close code")
+                .tag("code", code)
+                .tag("status", status)
+                .register(registry);
+    }
+}
@@ -0,0 +1,110 @@
+package api.indy.websocket;
+
+import api.indy.model.game.Game;
+import api.indy.service.AuthService;
+import api.indy.service.GameService;
+import api.indy.util.Util;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Component
+public class SpectatorSocketHandler extends AbstractWebSocketHandler {
+    private static final Pattern WATCH_PATH = Pattern.compile("/game/watch/([a-z\\d-]+)");
+
+    private final AuthService authService;
+    private final GameService gameService;
+    private final OutboundSessions outboundSessions;
+    private final int maxSpectators;
+    private final TextMessage readOnly;
+
+    @Autowired
+    public SpectatorSocketHandler(AuthService authService, GameService gameService, OutboundSessions outboundSessions,
+                                  @Value("${game.maxSpectators:50000}") int maxSpectators) throws IOException {
+        this.authService = authService;
+        this.gameService = gameService;
+        this.outboundSessions = outboundSessions;
+        this.maxSpectators = maxSpectators;
+        this.readOnly = new TextMessage(new ObjectMapper().writeValueAsString(Map.of(
+            "type", "error",
+            "target", "console",
+            "error", "Spectators cannot send commands"
+        )));
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession connection) throws Exception {
+        final WebSocketSession session = this.outboundSessions.wrap(connection);
+        final String path = session.getAttributes().get("path").toString();
+        final String query = session.getAttributes().get("query") == null ? "" : session.getAttributes().get("query").toString();
+
+        Matcher matcher = WATCH_PATH.matcher(path);
+        if(!matcher.find()) {
+            session.close(WebSocketStatus.BAD_REQUEST);
+            return;
+        }
+
+        final Game game = this.gameService.getGame(UUID.fromString(matcher.group(1)));
+        if(game == null) {
+            session.close(WebSocketStatus.NOT_FOUND);
+            return;
+        }
+
+        if(game.visibility().equals(Game.Visibility.PRIVATE)) {
+            final String ticket = Util.getParam(query, "ticket");
+
+            try {
+                if(ticket == null || !authService.verifyJoinTicket(ticket, game.uuid())) {
+                    session.close(WebSocketStatus.FORBIDDEN);
+                    return;
+                }
+            } catch(IllegalArgumentException e) {
+                session.close(WebSocketStatus.FORBIDDEN);
+                return;
+            }
+        }
+
+        if(!game.reserveSpectator(this.maxSpectators)) {
+            session.close(WebSocketStatus.FORBIDDEN);
+            return;
+        }
+
+        session.getAttributes().put("gameId", game.uuid());
+        game.submit(() -> game.addSpectator(session));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession connection, TextMessage message) throws Exception {
+        this.reject(connection);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession connection, BinaryMessage message) throws Exception {
+        this.reject(connection);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession connection, CloseStatus status) {
+        final WebSocketSession session = this.outboundSessions.get(connection);
+        this.outboundSessions.release(connection, status);
+
+        Game game = this.gameService.getGame((UUID) session.getAttributes().get("gameId"));
+        if(game != null) game.submit(() -> game.removeSpectator(session));
+    }
+
+    private void reject(WebSocketSession connection) {
+        this.outboundSessions.get(connection).sendMessage(this.readOnly);
+    }
+}
@@ -2,12 +2,17 @@ package api.indy.websocket;
 
 import org.springframework.web.socket.CloseStatus;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class WebSocketStatus {
     private enum Status {
         BAD_REQUEST(4400, "Bad Request"),
         UNAUTHORIZED(4401, "Unauthorized"),
         FORBIDDEN(4403, "Forbidden"),
         NOT_FOUND(4404, "Not Found"),
+        SLOW_CONSUMER(4408, "Slow Consumer"),
+        GAME_EXPIRED(4410, "Game Expired"),
         INTERNAL_SERVER_ERROR(4500, "Internal Server Error");
 
         private final CloseStatus closeStatus;
@@ -25,5 +30,37 @@ public class WebSocketStatus {
     public static final CloseStatus UNAUTHORIZED = Status.UNAUTHORIZED.status();
     public static final CloseStatus FORBIDDEN = Status.FORBIDDEN.status();
     public static final CloseStatus NOT_FOUND = Status.NOT_FOUND.status();
+    public static final CloseStatus SLOW_CONSUMER = Status.SLOW_CONSUMER.status();
+    public static final CloseStatus GAME_EXPIRED = Status.GAME_EXPIRED.status();
     public static final CloseStatus INTERNAL_SERVER_ERROR = Status.INTERNAL_SERVER_ERROR.status();
+
+    private static final Map<Integer, String> NAMES;
+
+    static {
+        Map<Integer, String> names = new HashMap<>(Map.ofEntries(
+            Map.entry(CloseStatus.NORMAL.getCode(), "NORMAL"),
+            Map.entry(CloseStatus.GOING_AWAY.getCode(), "GOING_AWAY"),
+            Map.entry(CloseStatus.PROTOCOL_ERROR.getCode(), "PROTOCOL_ERROR"),
+            Map.entry(CloseStatus.NOT_ACCEPTABLE.getCode(), "NOT_ACCEPTABLE"),
+            Map.entry(CloseStatus.NO_STATUS_CODE.getCode(), "NO_STATUS_CODE"),
+            Map.entry(CloseStatus.NO_CLOSE_FRAME.getCode(), "NO_CLOSE_FRAME"),
+            Map.entry(CloseStatus.BAD_DATA.getCode(), "BAD_DATA"),
+            Map.entry(CloseStatus.POLICY_VIOLATION.getCode(), "POLICY_VIOLATION"),
+            Map.entry(CloseStatus.TOO_BIG_TO_PROCESS.getCode(), "TOO_BIG_TO_PROCESS"),
+            Map.entry(CloseStatus.SERVER_ERROR.getCode(), "SERVER_ERROR"),
+            Map.entry(CloseStatus.SERVICE_RESTARTED.getCode(), "SERVICE_RESTARTED"),
+            Map.entry(CloseStatus.SERVICE_OVERLOAD.getCode(), "SERVICE_OVERLOAD")
+        ));
+        for(Status status : Status.values()) names.put(status.status().getCode(), status.name());
+
+        NAMES = Map.copyOf(names);
+    }
+
+    /**
+     * Standard and application close codes by name. Metrics tag closes with these rather than the
+     * client-supplied reason, so the set of series stays fixed.
+     */
+    public static Map<Integer, String> names() {
+        return NAMES;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package api.indy.websocket.command;
+
+import java.util.List;
+
+public sealed interface Command {
+    enum Type {
+        AUTH,
+        UPDATE_READINESS,
+        UPDATE_SYMBOLS,
+        MOVE
+    }
+
+    Type type();
+
+    record Auth(String token) implements Command {
+        @Override
+        public Type type() {
+            return Type.AUTH;
+        }
+    }
+
+    record UpdateReadiness(boolean ready) implements Command {
+        @Override
+        public Type type() {
+            return Type.UPDATE_READINESS;
+        }
+    }
+
+    record UpdateSymbols(List<SymbolEntry> symbols) implements Command {
+        @Override
+        public Type type() {
+            return Type.UPDATE_SYMBOLS;
+        }
+    }
+
+    record Move(int row, int col) implements Command {
+        @Override
+        public Type type() {
+            return Type.MOVE;
+        }
+    }
+
+    record SymbolEntry(int playerId, String symbol) {}
+}
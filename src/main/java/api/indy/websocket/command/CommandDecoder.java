@@ -0,0 +1,154 @@
+package api.indy.websocket.command;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decodes client frames straight from the token stream into {@link Command} records, without building a
+ * tree or a map. Unknown fields are skipped; every other problem becomes a {@link CommandException}.
+ */
+public class CommandDecoder {
+    private static final Map<String, Command.Type> TYPES = Map.of(
+        "auth", Command.Type.AUTH,
+        "update_readiness", Command.Type.UPDATE_READINESS,
+        "update_symbols", Command.Type.UPDATE_SYMBOLS,
+        "move", Command.Type.MOVE
+    );
+
+    private final JsonFactory factory;
+
+    public CommandDecoder() {
+        this.factory = new JsonFactory();
+    }
+
+    public Command decode(String payload) throws CommandException {
+        try(JsonParser parser = this.factory.createParser(payload)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT)
+                throw new CommandException(CommandException.Code.MALFORMED, "Expected a JSON object.");
+
+            Command.Type type = null;
+            String token = null;
+            Boolean ready = null;
+            Integer row = null, col = null;
+            List<Command.SymbolEntry> symbols = null;
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                switch(field) {
+                    case "type" -> type = this.type(parser, value);
+                    case "token" -> token = this.string(parser, value, "token");
+                    case "ready" -> ready = this.bool(value, "ready");
+                    case "row" -> row = this.integer(parser, value, "row");
+                    case "col" -> col = this.integer(parser, value, "col");
+                    case "symbols" -> symbols = this.symbols(parser, value);
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if(parser.nextToken() != null)
+                throw new CommandException(CommandException.Code.MALFORMED, "Unexpected content after the JSON object.");
+            if(type == null) throw new CommandException(CommandException.Code.MISSING_FIELD, "Missing 'type'.");
+
+            return switch(type) {
+                case AUTH -> new Command.Auth(require(token, "token"));
+                case UPDATE_READINESS -> new Command.UpdateReadiness(require(ready, "ready"));
+                case UPDATE_SYMBOLS -> new Command.UpdateSymbols(require(symbols, "symbols"));
+                case MOVE -> new Command.Move(require(row, "row"), require(col, "col"));
+            };
+        } catch(JsonProcessingException e) {
+            throw new CommandException(CommandException.Code.MALFORMED, "Malformed JSON.");
+        } catch(IOException e) {
+            throw new CommandException(CommandException.Code.MALFORMED, "Unreadable message.");
+        }
+    }
+
+    private Command.Type type(JsonParser parser, JsonToken value) throws IOException, CommandException {
+        String name = this.string(parser, value, "type");
+        Command.Type type = TYPES.get(name);
+        if(type == null) type = TYPES.get(name.toLowerCase(Locale.ROOT));
+        if(type == null) throw new CommandException(CommandException.Code.UNKNOWN_TYPE, "Invalid message type");
+
+        return type;
+    }
+
+    private String string(JsonParser parser, JsonToken value, String field) throws IOException, CommandException {
+        if(value != JsonToken.VALUE_STRING) throw invalid(field, "string", value);
+
+        return parser.getText();
+    }
+
+    private boolean bool(JsonToken value, String field) throws CommandException {
+        if(value != JsonToken.VALUE_TRUE && value != JsonToken.VALUE_FALSE) throw invalid(field, "boolean", value);
+
+        return value == JsonToken.VALUE_TRUE;
+    }
+
+    private int integer(JsonParser parser, JsonToken value, String field) throws IOException, CommandException {
+        if(value != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT) throw invalid(field, "integer", value);
+
+        return parser.getIntValue();
+    }
+
+    private List<Command.SymbolEntry> symbols(JsonParser parser, JsonToken value) throws IOException, CommandException {
+        if(value != JsonToken.START_ARRAY) throw invalid("symbols", "array", value);
+
+        List<Command.SymbolEntry> entries = new ArrayList<>(2);
+        while(parser.nextToken() == JsonToken.START_OBJECT) {
+            Integer playerId = null;
+            String symbol = null;
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken entryValue = parser.nextToken();
+
+                switch(field) {
+                    case "player_id" -> playerId = this.integer(parser, entryValue, "player_id");
+                    case "symbol" -> symbol = this.string(parser, entryValue, "symbol");
+                    default -> parser.skipChildren();
+                }
+            }
+
+            entries.add(new Command.SymbolEntry(require(playerId, "player_id"), require(symbol, "symbol")));
+        }
+
+        if(parser.currentToken() != JsonToken.END_ARRAY) throw invalid("symbols", "array of objects", parser.currentToken());
+
+        return List.copyOf(entries);
+    }
+
+    private static <T> T require(T value, String field) throws CommandException {
+        if(value == null) throw new CommandException(CommandException.Code.MISSING_FIELD, "Missing '%s'.".formatted(field));
+
+        return value;
+    }
+
+    private static CommandException invalid(String field, String expected, JsonToken received) {
+        return new CommandException(CommandException.Code.INVALID_FIELD,
+                "Expected %s value for '%s' (Received %s instead).".formatted(expected, field, describe(received)));
+    }
+
+    private static String describe(JsonToken token) {
+        if(token == null) return "nothing";
+
+        return switch(token) {
+            case VALUE_STRING -> "string";
+            case VALUE_NUMBER_INT -> "integer";
+            case VALUE_NUMBER_FLOAT -> "number";
+            case VALUE_TRUE, VALUE_FALSE -> "boolean";
+            case VALUE_NULL -> "null";
+            case START_OBJECT -> "object";
+            case START_ARRAY -> "array";
+            default -> token.name().toLowerCase(Locale.ROOT);
+        };
+    }
+}
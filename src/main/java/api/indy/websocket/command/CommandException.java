@@ -0,0 +1,21 @@
+package api.indy.websocket.command;
+
+public class CommandException extends Exception {
+    public enum Code {
+        MALFORMED,
+        MISSING_FIELD,
+        INVALID_FIELD,
+        UNKNOWN_TYPE
+    }
+
+    private final Code code;
+
+    public CommandException(Code code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public Code code() {
+        return this.code;
+    }
+}
@@ -0,0 +1,37 @@
+package api.indy.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseEngineTests {
+    private final SolverEngine solver = new SolverEngine();
+    private final TablebaseEngine tablebase = new TablebaseEngine(this.solver);
+
+    @Test
+    void foldsLegalPositionsUnderSymmetry() {
+        assertEquals(627, this.tablebase.size());
+    }
+
+    @Test
+    void matchesSolverOnEveryLegalPosition() {
+        this.walk(0, 0);
+    }
+
+    private void walk(int own, int opp) {
+        int occupied = own | opp;
+        if(BitBoard.isWin(own) || BitBoard.isWin(opp) || occupied == BitBoard.FULL) return;
+
+        int position = own | opp << BitBoard.CELLS;
+        int value = this.solver.evaluate(position);
+        assertEquals(value, this.tablebase.value(position));
+
+        int cell = this.tablebase.bestCell(position);
+        assertEquals(0, occupied & 1 << cell);
+        assertEquals(value, -this.solver.evaluate(opp | (own | 1 << cell) << BitBoard.CELLS));
+
+        for(int next = 0; next < BitBoard.CELLS; next++) {
+            if((occupied & 1 << next) == 0) this.walk(opp, own | 1 << next);
+        }
+    }
+}
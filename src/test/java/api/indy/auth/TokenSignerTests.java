@@ -0,0 +1,33 @@
+package api.indy.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenSignerTests {
+    private static final String OLD = "old:" + Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String NEW = "new:" + Base64.getEncoder().encodeToString(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+    @Test
+    void requiresAnActiveKeyWhenSeveralAreConfigured() {
+        assertThrows(IllegalArgumentException.class, () -> TokenSigner.fromConfig(OLD + "," + NEW, ""));
+        assertThrows(IllegalArgumentException.class, () -> TokenSigner.fromConfig(OLD + "," + NEW, null));
+
+        byte[] claims = "claims".getBytes(StandardCharsets.UTF_8);
+        TokenSigner single = TokenSigner.fromConfig(OLD, "");
+        assertArrayEquals(claims, single.verify(single.sign(claims)));
+    }
+
+    @Test
+    void verifiesTokensSignedWithAnyKeyInTheRing() {
+        byte[] claims = "claims".getBytes(StandardCharsets.UTF_8);
+        String token = TokenSigner.fromConfig(OLD, "old").sign(claims);
+
+        TokenSigner rotated = TokenSigner.fromConfig(OLD + "," + NEW, "new");
+        assertArrayEquals(claims, rotated.verify(token));
+        assertNull(TokenSigner.fromConfig(NEW, "new").verify(token));
+    }
+}
@@ -0,0 +1,173 @@
+package api.indy.cluster;
+
+import api.indy.model.game.Game;
+import api.indy.model.game.LobbyEntry;
+import api.indy.service.AuthService;
+import api.indy.service.ClusterService;
+import api.indy.service.GameService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterTests {
+    @Test
+    void addingANodeOnlyMovesKeysOntoIt() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d"), 128);
+        Random random = new Random(42);
+
+        Map<String, Integer> load = new HashMap<>();
+        int moved = 0;
+        for(int i = 0; i < 40_000; i++) {
+            UUID gameId = new UUID(random.nextLong(), random.nextLong());
+            String owner = after.owner(gameId);
+            load.merge(owner, 1, Integer::sum);
+
+            if(!owner.equals(before.owner(gameId))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        // Each of the four nodes should hold roughly a quarter of the keys
+        assertTrue(moved > 7_000 && moved < 13_000, "moved " + moved);
+        for(int count : load.values()) assertTrue(count > 7_000 && count < 13_000, "load " + load);
+        assertEquals(after.owner("abc123"), after.owner("ABC123"));
+    }
+
+    @Test
+    void localBusDeliversEventsAndRoutesRequests() throws Exception {
+        LocalEventBus.Hub hub = new LocalEventBus.Hub();
+        try(LocalEventBus first = new LocalEventBus(hub, "first"); LocalEventBus second = new LocalEventBus(hub, "second")) {
+            CountDownLatch delivered = new CountDownLatch(1);
+            List<String> events = Collections.synchronizedList(new ArrayList<>());
+            second.subscribe((from, type, payload) -> {
+                if(type.equals("echo")) return "%s:%s".formatted(from, payload);
+                if(type.equals("note")) {
+                    events.add(payload);
+                    delivered.countDown();
+                }
+
+                return null;
+            });
+
+            assertEquals(Set.of("first", "second"), first.nodes());
+            assertEquals("first:hello", first.request("second", "echo", "hello").get(1, TimeUnit.SECONDS));
+            assertNull(first.request("second", "unknown", "hello").get(1, TimeUnit.SECONDS));
+
+            first.publish("note", "payload");
+            assertTrue(delivered.await(1, TimeUnit.SECONDS));
+            assertEquals(List.of("payload"), events);
+        }
+    }
+
+    @Test
+    void socketBusDeliversEventsAndRoutesRequestsOverLoopback() throws Exception {
+        InetSocketAddress first = loopback(), second = loopback();
+        try(SocketEventBus a = new SocketEventBus("a", first, Map.of("b", second), "secret", 1 << 20, Duration.ofSeconds(2));
+            SocketEventBus b = new SocketEventBus("b", second, Map.of("a", first), "secret", 1 << 20, Duration.ofSeconds(2))) {
+            CountDownLatch delivered = new CountDownLatch(1);
+            List<String> events = Collections.synchronizedList(new ArrayList<>());
+            b.subscribe((from, type, payload) -> {
+                if(type.equals("echo")) return "%s:%s".formatted(from, payload);
+                if(type.equals("note")) {
+                    events.add(payload);
+                    delivered.countDown();
+                }
+
+                return null;
+            });
+
+            assertEquals("a:hello", a.request("b", "echo", "hello").get(2, TimeUnit.SECONDS));
+            assertNull(a.request("b", "unknown", null).get(2, TimeUnit.SECONDS));
+
+            a.publish("note", "payload");
+            assertTrue(delivered.await(2, TimeUnit.SECONDS));
+            assertEquals(List.of("payload"), events);
+        }
+    }
+
+    @Test
+    void socketBusHandlerCanWaitOnARequestBackToTheSender() throws Exception {
+        InetSocketAddress first = loopback(), second = loopback();
+        try(SocketEventBus a = new SocketEventBus("a", first, Map.of("b", second), "secret", 1 << 20, Duration.ofSeconds(2));
+            SocketEventBus b = new SocketEventBus("b", second, Map.of("a", first), "secret", 1 << 20, Duration.ofSeconds(2))) {
+            a.subscribe((from, type, payload) -> type.equals("name") ? "node a" : null);
+            // The nested reply reaches b on the same connection as the request being handled
+            b.subscribe((from, type, payload) -> type.equals("ask") ? "asked " + b.request(from, "name", null).join() : null);
+
+            assertEquals("asked node a", a.request("b", "ask", null).get(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void socketBusRejectsPeersWithoutTheSecret() throws Exception {
+        InetSocketAddress first = loopback(), second = loopback();
+        try(SocketEventBus impostor = new SocketEventBus("a", first, Map.of("b", second), "guess", 1 << 20, Duration.ofMillis(500));
+            SocketEventBus b = new SocketEventBus("b", second, Map.of("a", first), "secret", 1 << 20, Duration.ofMillis(500))) {
+            b.subscribe((from, type, payload) -> "reply");
+
+            assertThrows(Exception.class, () -> impostor.request("b", "echo", "hello").get(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void fullSyncClearsGamesARestartedNodeForgot() throws Exception {
+        LocalEventBus.Hub hub = new LocalEventBus.Hub();
+        LocalEventBus busA = new LocalEventBus(hub, "a");
+        LocalEventBus busB = new LocalEventBus(hub, "b");
+        GameService gamesA = gameService(), gamesB = gameService();
+        ClusterService clusterA = new ClusterService(gamesA, busA, "http://a", 128, Duration.ofMinutes(1));
+        ClusterService clusterB = new ClusterService(gamesB, busB, "http://b", 128, Duration.ofMinutes(1));
+
+        Game game = gamesB.createGame("owner", "Remote", "X", "PUBLIC", 3, 3);
+        awaitTrue(() -> {
+            LobbyEntry entry = gamesA.lobby().entry(game.uuid());
+            return entry != null && "b".equals(entry.node());
+        });
+
+        // Node b comes back empty: its first full sync must clear the entry it no longer hosts
+        clusterB.shutdown();
+        busB.close();
+        GameService restarted = gameService();
+        LocalEventBus busB2 = new LocalEventBus(hub, "b");
+        ClusterService clusterB2 = new ClusterService(restarted, busB2, "http://b", 128, Duration.ofMinutes(1));
+        awaitTrue(() -> gamesA.lobby().entry(game.uuid()) == null);
+
+        clusterA.shutdown();
+        clusterB2.shutdown();
+        busA.close();
+        busB2.close();
+    }
+
+    private static GameService gameService() {
+        AuthService authService = new AuthService(Duration.ofMinutes(30), Duration.ofHours(24), 1_000, Duration.ofMinutes(1), "uuid", "", "",
+                Duration.ofSeconds(60), 1, 1, 10, 30, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        return new GameService(authService, 1, new SimpleMeterRegistry());
+    }
+
+    private static InetSocketAddress loopback() throws IOException {
+        try(ServerSocket socket = new ServerSocket(0)) {
+            return new InetSocketAddress("127.0.0.1", socket.getLocalPort());
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while(!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package api.indy.controller;
+
+import api.indy.cluster.LocalEventBus;
+import api.indy.service.AuthService;
+import api.indy.service.ClusterService;
+import api.indy.service.GameService;
+import api.indy.service.LobbyFeed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameControllerTests {
+    @Test
+    void listsGamesWithTheArchiveDisabled() throws IOException {
+        AuthService authService = new AuthService(Duration.ofMinutes(30), Duration.ofHours(24), 1_000, Duration.ofMinutes(1), "uuid", "", "",
+                Duration.ofSeconds(60), 1, 1, 10, 30, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        GameService gameService = new GameService(authService, 1, new SimpleMeterRegistry());
+        LobbyFeed lobbyFeed = new LobbyFeed(gameService, Duration.ofMillis(100), Duration.ofSeconds(15), 64, 10, 1, Duration.ofSeconds(5));
+        LocalEventBus bus = new LocalEventBus(new LocalEventBus.Hub(), "a");
+        ClusterService cluster = new ClusterService(gameService, bus, "http://a", 128, Duration.ofMinutes(1));
+        try {
+            GameController controller = new GameController(gameService, authService, lobbyFeed, Optional.empty(), cluster);
+            gameService.createGame("owner", "Listed", "X", "PUBLIC", 3, 3);
+
+            ResponseEntity<Object> listing = controller.listGames(null, "all", 20);
+            assertEquals(HttpStatus.OK, listing.getStatusCode());
+            assertTrue(new String((byte[]) listing.getBody(), StandardCharsets.UTF_8).contains("\"Listed\""));
+
+            assertEquals(HttpStatus.NOT_FOUND, controller.history(null, null, null, 20).getStatusCode());
+            assertEquals(HttpStatus.NOT_FOUND, controller.replay(0, null).getStatusCode());
+        } finally {
+            cluster.shutdown();
+            bus.close();
+            lobbyFeed.shutdown();
+        }
+    }
+}
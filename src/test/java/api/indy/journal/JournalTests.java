@@ -0,0 +1,104 @@
+package api.indy.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsInOrderAcrossSegments() throws IOException {
+        try(Journal journal = new Journal(this.directory, 0, 256, 16)) {
+            for(int i = 0; i < 100; i++) journal.append((byte) 3, ByteBuffer.allocate(4).putInt(i).flip());
+            assertEquals(100L, journal.flush().join());
+        }
+
+        List<Integer> seen = new ArrayList<>();
+        long next = Journal.replay(this.directory, 0, (sequence, type, payload) -> {
+            assertEquals(3, type);
+            assertEquals(sequence, payload.getInt());
+            seen.add((int) sequence);
+        });
+
+        assertEquals(100, next);
+        assertEquals(100, seen.size());
+        assertTrue(this.segments().size() > 1);
+    }
+
+    @Test
+    void skipsRecordsBeforeTheStartingSequence() throws IOException {
+        try(Journal journal = new Journal(this.directory, 0, 256, 16)) {
+            for(int i = 0; i < 50; i++) journal.append((byte) 1, ByteBuffer.allocate(4).putInt(i).flip());
+            journal.flush().join();
+            journal.truncateBefore(30);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        long next = Journal.replay(this.directory, 30, (sequence, type, payload) -> seen.add(sequence));
+
+        assertEquals(50, next);
+        assertEquals(20, seen.size());
+        assertEquals(30L, seen.get(0));
+    }
+
+    @Test
+    void cutsOffATornTail() throws IOException {
+        try(Journal journal = new Journal(this.directory, 0, 1 << 20, 16)) {
+            for(int i = 0; i < 10; i++) journal.append((byte) 1, ByteBuffer.allocate(8).putLong(i).flip());
+            journal.flush().join();
+        }
+
+        Path segment = this.segments().get(0);
+        long intact = Files.size(segment);
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(6).putInt(64).putShort((short) 7).flip());
+        }
+
+        assertEquals(10, Journal.replay(this.directory, 0, (sequence, type, payload) -> {}));
+        assertEquals(intact, Files.size(segment));
+
+        try(Journal journal = new Journal(this.directory, 10, 1 << 20, 16)) {
+            journal.append((byte) 2, ByteBuffer.allocate(0));
+            assertEquals(11L, journal.flush().join());
+        }
+        assertEquals(11, Journal.replay(this.directory, 0, (sequence, type, payload) -> {}));
+    }
+
+    @Test
+    void failsClosedWhenAWriteFails() throws IOException {
+        // A directory in the place of the next segment makes the rotation fail
+        Path blocker = Files.createDirectory(this.directory.resolve("%020d.log".formatted(3)));
+
+        Journal journal = new Journal(this.directory, 0, 64, 16);
+        for(int i = 0; i < 5; i++) journal.append((byte) 1, ByteBuffer.allocate(8).putLong(i).flip());
+
+        assertThrows(CompletionException.class, () -> journal.flush().join());
+        assertTrue(journal.failed());
+        assertFalse(journal.append((byte) 1, ByteBuffer.allocate(8)));
+        assertThrows(CompletionException.class, () -> journal.flush().join());
+        journal.close();
+
+        Files.delete(blocker);
+        assertEquals(3, Journal.replay(this.directory, 0, (sequence, type, payload) -> {}));
+    }
+
+    private List<Path> segments() throws IOException {
+        try(Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package api.indy.model.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTests {
+    private static final int SIZE = 3;
+
+    @Test
+    void incrementalCheckMatchesOriginalCheckWinOnEveryReachablePosition() {
+        Set<String> positions = new HashSet<>();
+        this.walk(new ArrayList<>(), positions);
+
+        assertEquals(5478, positions.size());
+    }
+
+    @Test
+    void incrementalCheckMatchesNaiveScanOnLargerBoards() {
+        Random random = new Random(42);
+        int[][] variants = {{4, 4}, {5, 4}, {7, 5}, {15, 5}, {19, 5}};
+
+        for(int[] variant : variants) {
+            for(int game = 0; game < 200; game++) {
+                Board board = new Board(variant[0], variant[1]);
+                int value = 1;
+
+                while(!board.full()) {
+                    int row = random.nextInt(variant[0]), col = random.nextInt(variant[0]);
+                    if(!board.place(row, col, value)) continue;
+
+                    Game.WinState state = this.naiveScan(board, value);
+                    assertEquals(state, this.incremental(board, row, col));
+                    if(state != Game.WinState.NONE) break;
+                    value = -value;
+                }
+            }
+        }
+    }
+
+    @Test
+    void packedHistoryRoundTrips() {
+        Random random = new Random(7);
+
+        for(int game = 0; game < 500; game++) {
+            int size = game % 2 == 0 ? 3 : 4;
+            Board board = new Board(size, 3);
+            int value = random.nextBoolean() ? 1 : -1;
+
+            while(!board.full() && board.moves() < 14) {
+                if(board.place(random.nextInt(size), random.nextInt(size), value)) value = -value;
+            }
+
+            short[] history = board.history();
+            assertTrue(Board.packable(history, size));
+            assertArrayEquals(history, Board.unpack(Board.pack(history)));
+        }
+
+        assertFalse(Board.packable(new Board(5, 3).history(), 5));
+        assertFalse(Board.packable(new short[]{Board.encodeMove(0, 1), Board.encodeMove(1, 1)}, 3));
+    }
+
+    private void walk(List<int[]> moves, Set<String> positions) {
+        Board board = new Board(3, 3);
+        int value = 1;
+        for(int[] move : moves) {
+            board.place(move[0], move[1], value);
+            value = -value;
+        }
+        positions.add(this.key(board));
+
+        for(int row = 0; row < 3; row++) {
+            for(int col = 0; col < 3; col++) {
+                if(board.get(row, col) != 0) continue;
+
+                Board next = new Board(3, 3);
+                int v = 1;
+                for(int[] move : moves) {
+                    next.place(move[0], move[1], v);
+                    v = -v;
+                }
+                next.place(row, col, value);
+
+                Game.WinState state = this.originalCheckWin(next, value, row, col);
+                assertEquals(state, this.incremental(next, row, col));
+
+                moves.add(new int[]{row, col});
+                if(state != Game.WinState.NONE) positions.add(this.key(next));
+                else this.walk(moves, positions);
+                moves.remove(moves.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Game.checkWin as it was before boards grew past 3x3, reading {@link Board#cells()} in place of the
+     * nested lists it used to keep.
+     */
+    private Game.WinState originalCheckWin(Board board, int value, int row, int col) {
+        List<List<Integer>> cells = Arrays.stream(board.cells()).map(r -> Arrays.stream(r).boxed().toList()).toList();
+
+        if(cells.get(row).stream().allMatch(cell -> cell == value)) return Game.WinState.WIN;
+        if(cells.stream().allMatch(r -> r.get(col) == value)) return Game.WinState.WIN;
+        if(row == col && IntStream.range(0, SIZE).allMatch(i -> cells.get(i).get(i) == value)) return Game.WinState.WIN;
+        if(row + col == SIZE - 1 && IntStream.range(0, SIZE).allMatch(i -> cells.get(i).get(SIZE - i - 1) == value)) return Game.WinState.WIN;
+
+        if(cells.stream().allMatch(r -> r.stream().allMatch(cell -> cell != 0))) return Game.WinState.DRAW;
+
+        return Game.WinState.NONE;
+    }
+
+    /**
+     * The same scan for k in a row on any board: every cell, every direction, no bitboards.
+     */
+    private Game.WinState naiveScan(Board board, int value) {
+        int[][] cells = board.cells();
+        int size = board.size(), length = board.winLength();
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+        for(int row = 0; row < size; row++) {
+            for(int col = 0; col < size; col++) {
+                for(int[] direction : directions) {
+                    int count = 0;
+                    while(count < length) {
+                        int r = row + direction[0] * count, c = col + direction[1] * count;
+                        if(r < 0 || r >= size || c < 0 || c >= size || cells[r][c] != value) break;
+                        count++;
+                    }
+                    if(count == length) return Game.WinState.WIN;
+                }
+            }
+        }
+
+        for(int[] r : cells) {
+            for(int cell : r) {
+                if(cell == 0) return Game.WinState.NONE;
+            }
+        }
+
+        return Game.WinState.DRAW;
+    }
+
+    private Game.WinState incremental(Board board, int row, int col) {
+        if(board.wins(row, col)) return Game.WinState.WIN;
+        if(board.full()) return Game.WinState.DRAW;
+
+        return Game.WinState.NONE;
+    }
+
+    private String key(Board board) {
+        StringBuilder key = new StringBuilder();
+        for(int[] row : board.cells()) {
+            for(int cell : row) key.append(cell + 1);
+        }
+
+        return key.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package api.indy.model.game;
+
+import api.indy.websocket.WebSocketStatus;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GameTests {
+    @Test
+    void spectatorsSeeEventsThatSkipAPlayer() throws Exception {
+        Game game = new Game(UUID.randomUUID(), "owner", "match", "X", "public", null, null, 3, 3);
+        WebSocketSession first = session(), second = session(), spectator = session();
+
+        assertTrue(game.join(first));
+        assertTrue(game.reserveSpectator(10));
+        game.addSpectator(spectator);
+        assertTrue(game.join(second));
+
+        game.broadcast(Map.of("type", "player_join", "player", game.player(second)), second);
+
+        verify(first).sendMessage(any());
+        verify(second, never()).sendMessage(any());
+
+        ArgumentCaptor<WebSocketMessage<?>> frames = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(spectator, times(2)).sendMessage(frames.capture());
+        List<WebSocketMessage<?>> received = frames.getAllValues();
+        assertTrue(((TextMessage) received.get(0)).getPayload().contains("\"spectate\""));
+        assertTrue(((TextMessage) received.get(1)).getPayload().contains("\"player_join\""));
+    }
+
+    @Test
+    void turnsAwayASpectatorQueuedBehindTheGamesDeletion() throws Exception {
+        Game game = new Game(UUID.randomUUID(), "owner", "match", "X", "public", null, null, 3, 3);
+        WebSocketSession late = session();
+
+        assertTrue(game.reserveSpectator(1));
+        game.closeSpectators();
+        game.addSpectator(late);
+
+        verify(late).close(WebSocketStatus.NOT_FOUND);
+        verify(late, never()).sendMessage(any());
+        assertEquals(0, game.spectatorCount());
+    }
+
+    @Test
+    void givesARestoredSeatBackOnlyToItsToken() throws Exception {
+        Game game = new Game(UUID.randomUUID(), "alice", "match", "X", "public", null, null, 3, 3);
+        // X has moved, so O is first in turn order
+        game.restore(true, new short[] {Board.encodeMove(4, 1)}, List.of(
+            new Game.Seat("bob", 1, "Player 2", "O"),
+            new Game.Seat("alice", 0, "Player 1", "X")
+        ));
+        assertEquals(2, game.vacantSeats());
+
+        assertFalse(game.join(session("mallory")));
+
+        WebSocketSession alice = session("alice");
+        assertTrue(game.join(alice));
+        assertEquals("X", game.player(alice).symbol());
+        assertEquals(1, game.vacantSeats());
+        assertFalse(game.canMove(alice, 0, 0));
+
+        game.resume(alice);
+        ArgumentCaptor<WebSocketMessage<?>> frames = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(alice, times(2)).sendMessage(frames.capture());
+        assertTrue(((TextMessage) frames.getAllValues().get(0)).getPayload().contains("\"game_resume\""));
+
+        WebSocketSession bob = session("bob");
+        assertTrue(game.join(bob));
+        assertEquals(0, game.vacantSeats());
+        assertTrue(game.canMove(bob, 0, 0));
+        assertFalse(game.canMove(bob, 1, 1));
+    }
+
+    private static WebSocketSession session() {
+        return session(null);
+    }
+
+    private static WebSocketSession session(String token) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(new HashMap<>(token == null ? Map.of() : Map.of("token", token)));
+
+        return session;
+    }
+}
@@ -0,0 +1,96 @@
+package api.indy.service;
+
+import api.indy.ai.AIEngine;
+import api.indy.ai.SolverEngine;
+import api.indy.ai.TablebaseEngine;
+import api.indy.model.ai.AIMove;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AIServiceTests {
+    /**
+     * A remote engine whose calls ignore interrupts and only return once released, like a socket read
+     * that is stuck on a silent peer.
+     */
+    private static class HungEngine implements AIEngine {
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return "hung";
+        }
+
+        @Override
+        public boolean remote() {
+            return true;
+        }
+
+        @Override
+        public AIMove getMove(int[][] board, int value) {
+            this.calls.incrementAndGet();
+            while(true) {
+                try {
+                    this.released.await();
+                    for(int cell = 0; ; cell++) {
+                        if(board[cell / 3][cell % 3] == 0) return new AIMove(cell / 3, cell % 3, this.name());
+                    }
+                } catch(InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    @Test
+    void aTimedOutCallKeepsItsPermitUntilUpstreamReturns() throws Exception {
+        HungEngine engine = new HungEngine();
+        TablebaseEngine fallback = new TablebaseEngine(new SolverEngine());
+        AIService service = new AIService(List.of(engine, fallback), fallback, "hung", 100, Duration.ofMinutes(10),
+                Duration.ofMillis(50), 1, 1, 512, new SimpleMeterRegistry());
+        try {
+            int[][] empty = new int[3][3];
+            int[][] opened = {{1, 0, 0}, {0, 0, 0}, {0, 0, 0}};
+
+            assertEquals(fallback.name(), service.getMoveAsync(empty, 1).join().engine());
+            assertEquals(1, service.timeouts());
+
+            // The hung call still holds the only permit, so the next request never reaches upstream
+            assertEquals(fallback.name(), service.getMoveAsync(opened, -1).join().engine());
+            assertEquals(1, engine.calls.get());
+            assertEquals(1, service.rejections());
+
+            // Once upstream answers the permit comes back, and the late answer is cached for later requests
+            engine.released.countDown();
+            assertEquals(engine.name(), answer(service, empty, 1, engine.name()));
+            assertEquals(1, engine.calls.get());
+
+            assertEquals(engine.name(), answer(service, opened, -1, engine.name()));
+            assertEquals(2, engine.calls.get());
+        } finally {
+            engine.released.countDown();
+            service.shutdown();
+        }
+    }
+
+    /**
+     * The engine that answered, retrying for a while since a permit is only returned after the worker hands
+     * over its result.
+     */
+    private static String answer(AIService service, int[][] board, int value, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        String engine;
+        do {
+            engine = service.getMoveAsync(board, value).join().engine();
+        } while(!engine.equals(expected) && System.nanoTime() < deadline);
+
+        return engine;
+    }
+}
@@ -0,0 +1,98 @@
+package api.indy.service;
+
+import api.indy.model.game.Game;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JournalServiceTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsAStartedGamesSeatsAcrossARestart() throws IOException {
+        GameService gameService = gameService();
+        JournalService journal = this.journal(gameService);
+        Game game = this.play(gameService);
+        journal.shutdown();
+
+        this.assertSeated(gameService(), game.uuid(), game.seats());
+    }
+
+    @Test
+    void keepsAStartedGamesSeatsInASnapshot() throws IOException {
+        GameService gameService = gameService();
+        JournalService journal = this.journal(gameService);
+        Game game = this.play(gameService);
+        journal.snapshot();
+        journal.shutdown();
+
+        this.assertSeated(gameService(), game.uuid(), game.seats());
+    }
+
+    /**
+     * Starts a game between alice (X) and bob (O) and plays one move.
+     */
+    private Game play(GameService gameService) throws IOException {
+        Game game = gameService.createGame("alice", "match", "X", "public", 3, 3);
+        WebSocketSession alice = session("alice"), bob = session("bob");
+        game.join(alice);
+        game.join(bob);
+        game.player(alice).setSymbol("X");
+        game.player(bob).setSymbol("O");
+
+        game.start();
+        game.move(1, 1);
+
+        return game;
+    }
+
+    private void assertSeated(GameService gameService, UUID gameId, List<Game.Seat> seats) throws IOException {
+        JournalService journal = this.journal(gameService);
+        try {
+            Game game = gameService.getGame(gameId);
+            assertTrue(game.started());
+            assertEquals(2, game.vacantSeats());
+            assertEquals(seats, game.seats());
+
+            WebSocketSession next = session(seats.get(0).token());
+            assertTrue(game.join(next));
+            assertTrue(game.canMove(next, 0, 0));
+            assertFalse(game.canMove(next, 1, 1));
+        } finally {
+            journal.shutdown();
+        }
+    }
+
+    private JournalService journal(GameService gameService) throws IOException {
+        return new JournalService(gameService, this.directory, DataSize.ofMegabytes(1), 64, Duration.ofHours(1));
+    }
+
+    private static WebSocketSession session(String token) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(new HashMap<>(Map.of("token", token)));
+
+        return session;
+    }
+
+    private static GameService gameService() {
+        AuthService authService = new AuthService(Duration.ofMinutes(30), Duration.ofHours(24), 1_000, Duration.ofMinutes(1), "uuid", "", "",
+                Duration.ofSeconds(60), 1, 1, 10, 30, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        return new GameService(authService, 1, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,120 @@
+package api.indy.service;
+
+import api.indy.model.game.Board;
+import api.indy.model.game.Game;
+import api.indy.model.game.MatchPage;
+import api.indy.model.game.MatchRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchArchiveTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void cutsATornTailOnLoad() throws IOException {
+        MatchArchive archive = new MatchArchive(gameService(), this.directory);
+        for(int i = 0; i < 3; i++) archive.onEnded(game("owner", "public"), Game.WinState.WIN, null);
+        archive.shutdown();
+
+        Path log = this.directory.resolve("matches.log");
+        long intact = Files.size(log);
+        // A record header promising more bytes than made it to disk, as after a crash mid-append
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        archive = new MatchArchive(gameService(), this.directory);
+        assertEquals(3, archive.matchCount());
+        assertEquals(intact, archive.archiveBytes());
+        assertEquals(intact, Files.size(log));
+
+        archive.onEnded(game("owner", "public"), Game.WinState.DRAW, null);
+        archive.shutdown();
+
+        archive = new MatchArchive(gameService(), this.directory);
+        assertEquals(4, archive.matchCount());
+        assertEquals("DRAW", archive.match(3).state());
+        archive.shutdown();
+    }
+
+    @Test
+    void pagesNewestFirstByCursorAndEndTime() throws IOException, InterruptedException {
+        MatchArchive archive = new MatchArchive(gameService(), this.directory);
+        for(int i = 0; i < 5; i++) {
+            archive.onEnded(game("owner", "public"), Game.WinState.WIN, null);
+            Thread.sleep(2);
+        }
+        archive.shutdown();
+
+        archive = new MatchArchive(gameService(), this.directory);
+        MatchPage first = archive.page(null, null, null, null, 2);
+        assertEquals(List.of(4L, 3L), ids(first));
+        assertEquals("3", first.nextCursor());
+
+        MatchPage second = archive.page(Long.parseLong(first.nextCursor()), null, null, null, 2);
+        assertEquals(List.of(2L, 1L), ids(second));
+
+        MatchPage last = archive.page(Long.parseLong(second.nextCursor()), null, null, null, 2);
+        assertEquals(List.of(0L), ids(last));
+        assertNull(last.nextCursor());
+
+        long before = archive.match(2).endedAt();
+        MatchPage earlier = archive.page(null, before, null, null, 10);
+        assertEquals(List.of(1L, 0L), ids(earlier));
+        archive.shutdown();
+    }
+
+    @Test
+    void listsPrivateMatchesOnlyForTheirOwner() throws IOException {
+        MatchArchive archive = new MatchArchive(gameService(), this.directory);
+        Game hidden = game("alice", "private");
+        archive.onEnded(hidden, Game.WinState.WIN, null);
+        archive.onEnded(game("bob", "public"), Game.WinState.WIN, null);
+        archive.shutdown();
+
+        archive = new MatchArchive(gameService(), this.directory);
+        assertEquals(List.of(1L), ids(archive.page(null, null, null, null, 10)));
+        assertEquals(List.of(), ids(archive.page(null, null, hidden.uuid(), null, 10)));
+        assertFalse(ids(archive.page(null, null, null, "bob", 10)).contains(0L));
+        assertEquals(List.of(0L), ids(archive.page(null, null, null, "alice", 10)));
+
+        MatchRecord match = archive.match(0);
+        assertTrue(archive.visibleTo(match, "alice"));
+        assertFalse(archive.visibleTo(match, "bob"));
+        assertFalse(archive.visibleTo(match, null));
+        assertTrue(archive.visibleTo(archive.match(1), null));
+        archive.shutdown();
+    }
+
+    private static Game game(String owner, String visibility) {
+        Game game = new Game(UUID.randomUUID(), owner, "match", "X", visibility, null, null, 3, 3);
+        game.restore(true, new short[] {
+            Board.encodeMove(0, 1), Board.encodeMove(3, -1),
+            Board.encodeMove(1, 1), Board.encodeMove(4, -1),
+            Board.encodeMove(2, 1)
+        });
+
+        return game;
+    }
+
+    private static List<Long> ids(MatchPage page) {
+        return page.matches().stream().map(MatchRecord::id).toList();
+    }
+
+    private static GameService gameService() {
+        AuthService authService = new AuthService(Duration.ofMinutes(30), Duration.ofHours(24), 1_000, Duration.ofMinutes(1), "uuid", "", "",
+                Duration.ofSeconds(60), 1, 1, 10, 30, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        return new GameService(authService, 1, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,155 @@
+package api.indy.service;
+
+import api.indy.model.game.Game;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchmakerTests {
+    private record Match(String token, Game game, boolean owner) {}
+
+    private static final Matchmaker.Variant CLASSIC = new Matchmaker.Variant(3, 3);
+    private static final Matchmaker.Variant GOMOKU = new Matchmaker.Variant(15, 5);
+
+    private final BlockingQueue<Match> matched = new LinkedBlockingQueue<>();
+
+    @Test
+    void pairsPlayersOfTheSameVariant() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Matchmaker matchmaker = new Matchmaker(gameService(), 100, 2, registry);
+        try {
+            this.enqueue(matchmaker, "alice", CLASSIC);
+            this.enqueue(matchmaker, "carol", GOMOKU);
+            this.enqueue(matchmaker, "bob", CLASSIC);
+
+            Match first = this.next(), second = this.next();
+            assertSame(first.game(), second.game());
+            assertEquals(3, first.game().boardSize());
+            assertEquals("alice", first.game().owner());
+            assertEquals("alice", first.token());
+            assertTrue(first.owner());
+            assertEquals("bob", second.token());
+            assertFalse(second.owner());
+
+            assertNull(this.matched.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(1, matchmaker.waiting());
+            assertEquals(1, matchmaker.matches());
+            assertEquals(2, registry.timer("matchmaking.wait").count());
+        } finally {
+            matchmaker.shutdown();
+        }
+    }
+
+    @Test
+    void pairsInArrivalOrder() throws InterruptedException {
+        Matchmaker matchmaker = new Matchmaker(gameService(), 100, 2, new SimpleMeterRegistry());
+        try {
+            for(String token : new String[] {"a", "b", "c", "d"}) this.enqueue(matchmaker, token, CLASSIC);
+
+            Game first = this.game(), second = this.game();
+            assertEquals("a", first.owner());
+            assertEquals("c", second.owner());
+            assertEquals(0, matchmaker.waiting());
+        } finally {
+            matchmaker.shutdown();
+        }
+    }
+
+    @Test
+    void neverMatchesACancelledTicket() throws InterruptedException {
+        Matchmaker matchmaker = new Matchmaker(gameService(), 100, 2, new SimpleMeterRegistry());
+        try {
+            Matchmaker.Ticket ticket = this.enqueue(matchmaker, "alice", CLASSIC);
+            matchmaker.cancel(ticket);
+            this.enqueue(matchmaker, "bob", CLASSIC);
+
+            assertNull(this.matched.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(1, matchmaker.waiting());
+
+            // The token is free to queue again once its ticket is withdrawn
+            this.enqueue(matchmaker, "alice", CLASSIC);
+            assertEquals("bob", this.game().owner());
+        } finally {
+            matchmaker.shutdown();
+        }
+    }
+
+    @Test
+    void skipsAPlayerWhoLeftBeforeTheirCancelRan() throws InterruptedException {
+        Matchmaker matchmaker = new Matchmaker(gameService(), 100, 2, new SimpleMeterRegistry());
+        try {
+            AtomicBoolean present = new AtomicBoolean(true);
+            this.enqueue(matchmaker, "alice", CLASSIC, present::get);
+            present.set(false);
+
+            this.enqueue(matchmaker, "bob", CLASSIC);
+            this.enqueue(matchmaker, "carol", CLASSIC);
+
+            Match first = this.next(), second = this.next();
+            assertEquals("bob", first.game().owner());
+            assertNotEquals("alice", first.token());
+            assertNotEquals("alice", second.token());
+            assertEquals(0, matchmaker.waiting());
+        } finally {
+            matchmaker.shutdown();
+        }
+    }
+
+    @Test
+    void capsTheQueueAndRejectsDuplicates() {
+        Matchmaker matchmaker = new Matchmaker(gameService(), 2, 2, new SimpleMeterRegistry());
+        try {
+            this.enqueue(matchmaker, "alice", CLASSIC);
+            assertNull(matchmaker.enqueue("alice", GOMOKU, "X", () -> true, (game, owner) -> {}));
+
+            this.enqueue(matchmaker, "bob", GOMOKU);
+            assertNull(matchmaker.enqueue("carol", new Matchmaker.Variant(5, 4), "X", () -> true, (game, owner) -> {}));
+            assertEquals(2, matchmaker.waiting());
+        } finally {
+            matchmaker.shutdown();
+        }
+    }
+
+    private Matchmaker.Ticket enqueue(Matchmaker matchmaker, String token, Matchmaker.Variant variant) {
+        return this.enqueue(matchmaker, token, variant, () -> true);
+    }
+
+    private Matchmaker.Ticket enqueue(Matchmaker matchmaker, String token, Matchmaker.Variant variant, BooleanSupplier present) {
+        Matchmaker.Ticket ticket = matchmaker.enqueue(token, variant, "X", present, (game, owner) -> this.matched.add(new Match(token, game, owner)));
+        assertNotNull(ticket);
+
+        return ticket;
+    }
+
+    private Match next() throws InterruptedException {
+        Match match = this.matched.poll(2, TimeUnit.SECONDS);
+        assertNotNull(match, "no match was made");
+
+        return match;
+    }
+
+    /**
+     * The owning side of the next match; each pairing notifies the owner first.
+     */
+    private Game game() throws InterruptedException {
+        Match owner = this.next(), other = this.next();
+        assertSame(owner.game(), other.game());
+
+        return owner.game();
+    }
+
+    private static GameService gameService() {
+        AuthService authService = new AuthService(Duration.ofMinutes(30), Duration.ofHours(24), 1_000, Duration.ofMinutes(1), "uuid", "", "",
+                Duration.ofSeconds(60), 1, 1, 10, 30, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        return new GameService(authService, 1, new SimpleMeterRegistry());
+    }
+}
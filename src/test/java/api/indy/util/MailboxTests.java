@@ -0,0 +1,68 @@
+package api.indy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailboxTests {
+    @Test
+    void runsTasksInOrderWithoutOverlap() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int mailboxes = 32, tasks = 2_000;
+
+        try {
+            CountDownLatch done = new CountDownLatch(mailboxes * tasks);
+            List<List<Integer>> seen = new ArrayList<>();
+            AtomicInteger overlaps = new AtomicInteger();
+
+            for(int m = 0; m < mailboxes; m++) {
+                Mailbox mailbox = new Mailbox(executor);
+                List<Integer> order = new ArrayList<>();
+                AtomicInteger running = new AtomicInteger();
+                seen.add(order);
+
+                for(int t = 0; t < tasks; t++) {
+                    int task = t;
+                    mailbox.submit(() -> {
+                        if(running.incrementAndGet() != 1) overlaps.incrementAndGet();
+                        order.add(task);
+                        running.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, overlaps.get());
+            for(List<Integer> order : seen) {
+                assertEquals(tasks, order.size());
+                for(int t = 0; t < tasks; t++) assertEquals(t, order.get(t));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsDrainingAfterAFailedTask() {
+        Mailbox mailbox = new Mailbox(Runnable::run);
+        List<String> ran = new ArrayList<>();
+
+        mailbox.submit(() -> ran.add("first"));
+        mailbox.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        mailbox.submit(() -> ran.add("third"));
+
+        assertEquals(List.of("first", "third"), ran);
+        assertEquals(0, mailbox.depth());
+    }
+}
@@ -0,0 +1,52 @@
+package api.indy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTests {
+    @Test
+    void expiresEntriesOnTheirTickAcrossTurnsOfTheWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1_000);
+        List<String> expired = new ArrayList<>();
+
+        wheel.schedule("soon", 1_025);
+        wheel.schedule("next-turn", 1_105);
+        wheel.schedule("far", 1_500);
+        assertEquals(3, wheel.size());
+
+        wheel.advance(1_020, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(1_030, expired::add);
+        assertEquals(List.of("soon"), expired);
+
+        // "next-turn" shares a bucket with an earlier tick and must survive it
+        wheel.advance(1_100, expired::add);
+        assertEquals(List.of("soon"), expired);
+
+        wheel.advance(1_110, expired::add);
+        assertEquals(List.of("soon", "next-turn"), expired);
+
+        wheel.advance(2_000, expired::add);
+        assertEquals(List.of("soon", "next-turn", "far"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulingFromACallbackLandsOnALaterTick() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, 4, 0);
+        List<Integer> expired = new ArrayList<>();
+
+        wheel.schedule(0, 0);
+        wheel.advance(10, value -> {
+            expired.add(value);
+            if(value < 3) wheel.schedule(value + 1, 0);
+        });
+
+        assertEquals(List.of(0, 1, 2, 3), expired);
+    }
+}
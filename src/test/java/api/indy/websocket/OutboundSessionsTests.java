@@ -0,0 +1,65 @@
+package api.indy.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboundSessionsTests {
+    @Test
+    void aStalledPeerCannotHoldUpOtherSessions() throws Exception {
+        OutboundSessions sessions = new OutboundSessions(DataSize.ofKilobytes(512), Duration.ofMillis(200), 1, new SimpleMeterRegistry());
+        try {
+            // The stalled peer's write only returns once its socket is closed, like a blocked TCP write
+            CountDownLatch unblocked = new CountDownLatch(1);
+            CountDownLatch writing = new CountDownLatch(1);
+            WebSocketSession stalled = session();
+            doAnswer(invocation -> {
+                writing.countDown();
+                unblocked.await();
+                return null;
+            }).when(stalled).sendMessage(any());
+            doAnswer(invocation -> {
+                unblocked.countDown();
+                return null;
+            }).when(stalled).close(any(CloseStatus.class));
+
+            CountDownLatch delivered = new CountDownLatch(1);
+            WebSocketSession healthy = session();
+            doAnswer(invocation -> {
+                delivered.countDown();
+                return null;
+            }).when(healthy).sendMessage(any());
+
+            // A single sender thread, which the stalled write takes over
+            sessions.wrap(stalled).sendMessage(new TextMessage("stuck"));
+            assertTrue(writing.await(1, TimeUnit.SECONDS));
+            sessions.wrap(healthy).sendMessage(new TextMessage("hello"));
+
+            assertTrue(delivered.await(2, TimeUnit.SECONDS), "the healthy session never got its message");
+            verify(stalled, timeout(1000)).close(WebSocketStatus.SLOW_CONSUMER);
+            assertEquals(1, sessions.evictions());
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    private static WebSocketSession session() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+
+        return session;
+    }
+}
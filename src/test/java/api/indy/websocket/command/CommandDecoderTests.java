@@ -0,0 +1,41 @@
+package api.indy.websocket.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandDecoderTests {
+    private final CommandDecoder decoder = new CommandDecoder();
+
+    @Test
+    void decodesEveryCommandType() throws CommandException {
+        assertEquals(new Command.Auth("abc"), this.decoder.decode("{\"type\":\"auth\",\"token\":\"abc\"}\n"));
+        assertEquals(new Command.UpdateReadiness(true), this.decoder.decode("{\"ready\":true,\"type\":\"update_readiness\"}"));
+        assertEquals(new Command.Move(1, 2), this.decoder.decode("{\"type\":\"MOVE\",\"row\":1,\"col\":2,\"extra\":{\"a\":[1,2]}}"));
+        assertEquals(new Command.UpdateSymbols(List.of(new Command.SymbolEntry(0, "X"), new Command.SymbolEntry(1, "O"))),
+                this.decoder.decode("{\"type\":\"update_symbols\",\"symbols\":[{\"player_id\":0,\"symbol\":\"X\"},{\"symbol\":\"O\",\"player_id\":1}]}"));
+    }
+
+    @Test
+    void reportsStructuredErrors() {
+        assertCode(CommandException.Code.MALFORMED, "{\"type\":\"move\",");
+        assertCode(CommandException.Code.MALFORMED, "[1,2]");
+        assertCode(CommandException.Code.MALFORMED, "{\"type\":\"move\",\"row\":1,\"col\":2}{\"type\":\"move\"}");
+        assertCode(CommandException.Code.MALFORMED, "{\"type\":\"move\",\"row\":1,\"col\":2} 42");
+        assertCode(CommandException.Code.MALFORMED, "{\"type\":\"move\",\"row\":1,\"col\":2}garbage");
+        assertCode(CommandException.Code.MISSING_FIELD, "{\"row\":1,\"col\":2}");
+        assertCode(CommandException.Code.MISSING_FIELD, "{\"type\":\"move\",\"row\":1}");
+        assertCode(CommandException.Code.INVALID_FIELD, "{\"type\":\"move\",\"row\":\"1\",\"col\":2}");
+        assertCode(CommandException.Code.INVALID_FIELD, "{\"type\":\"move\",\"row\":1.5,\"col\":2}");
+        assertCode(CommandException.Code.INVALID_FIELD, "{\"type\":\"update_readiness\",\"ready\":null}");
+        assertCode(CommandException.Code.INVALID_FIELD, "{\"type\":\"update_symbols\",\"symbols\":[1]}");
+        assertCode(CommandException.Code.UNKNOWN_TYPE, "{\"type\":\"resign\"}");
+    }
+
+    private void assertCode(CommandException.Code code, String payload) {
+        CommandException error = assertThrows(CommandException.class, () -> this.decoder.decode(payload));
+        assertEquals(code, error.code(), payload);
+    }
+}